@@ -0,0 +1,77 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLIndividual;
+
+/**
+ * Smell and metric individuals of a single commit, the innermost loop of an
+ * export
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AxiomBuilderBenchmark {
+
+	private static final int COMMITS = 1000;
+
+	@Param({ "random", "content" })
+	public String ids;
+
+	private List<Commit> commits = new ArrayList<Commit>();
+	private List<Map<String, List<CodeSmell>>> smells = new ArrayList<Map<String, List<CodeSmell>>>();
+	private CountingAxiomSink sink;
+	private AxiomBuilder builder;
+	private OWLIndividual commitInd;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// every commit has smells
+		SyntheticSmellSource source = new SyntheticSmellSource(COMMITS, 42, 1.0);
+		for (int i = 0; i < COMMITS; i++) {
+			commits.add(source.createCommit(i));
+		}
+		ICommitSmells index = source.findSmells(commits);
+		for (Commit commit : commits) {
+			smells.add(index.getSmells(commit));
+		}
+
+		OWLDataFactory factory = OWLManager.getOWLDataFactory();
+		sink = new CountingAxiomSink();
+		builder = new AxiomBuilder(factory, sink,
+				ids.equals("content") ? new ContentIdStrategy() : new RandomIdStrategy());
+		commitInd = factory.getOWLNamedIndividual("commit", AxiomBuilder.oceanPrefix);
+	}
+
+	@Benchmark
+	public void addCodeSmells(AxiomCounters counters) {
+		int i = next++ % COMMITS;
+		long before = sink.getCount();
+		builder.addCodeSmells(commits.get(i).getId(), smells.get(i), commitInd);
+		counters.axioms += sink.getCount() - before;
+	}
+
+}
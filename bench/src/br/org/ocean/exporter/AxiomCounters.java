@@ -0,0 +1,23 @@
+package br.org.ocean.exporter;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Axioms handled by a benchmark, reported by JMH as axioms per second
+ */
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class AxiomCounters {
+
+	public long axioms;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		axioms = 0;
+	}
+
+}
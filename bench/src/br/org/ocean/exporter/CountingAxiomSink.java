@@ -0,0 +1,36 @@
+package br.org.ocean.exporter;
+
+import java.util.Collection;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+/**
+ * Discards axioms, only counting them
+ */
+public class CountingAxiomSink implements IAxiomSink {
+
+	private long count;
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		count++;
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		count += axioms.size();
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
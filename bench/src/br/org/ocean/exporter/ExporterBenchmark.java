@@ -0,0 +1,117 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.repositoryminer.model.Repository;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+import br.org.ocean.IExportProgressListener;
+import br.org.ocean.ILogger;
+
+/**
+ * Whole exports of synthetic repositories, from the commits to the axioms,
+ * and the serialization of the resulting ontology
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExporterBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int commits;
+
+	@Param({ "1" })
+	public int threads;
+
+	@Param({ "random" })
+	public String ids;
+
+	private Repository repository;
+	private OntoExporter exporter;
+	private OWLOntologyManager manager;
+	private OWLOntology onto;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BaseOntologies base = BaseOntologies.read(System.getProperty("ocean.ontos", "ontos"));
+		Properties props = new Properties();
+		props.setProperty(ExportSettings.THREADS, String.valueOf(threads));
+		props.setProperty(ExportSettings.IDS, ids);
+
+		repository = SyntheticSmellSource.createRepository();
+		exporter = new OntoExporter().init(new ILogger() {
+			@Override
+			public ILogger log(String message) {
+				return this;
+			}
+		}, new IExportProgressListener() {
+			@Override
+			public void exportStart(int maxSteps) {
+			}
+
+			@Override
+			public void exportProgress(int step) {
+			}
+		}, props, base).setSmellSource(new SyntheticSmellSource(commits, 42, 0.3));
+
+		// the ontology saved by saveOntology, as exported to the default format
+		manager = OWLManager.createOWLOntologyManager();
+		onto = base.loadInto(manager);
+		exporter.populate(repository, new BufferedAxiomSink(new OntologyAxiomSink(manager, onto)));
+	}
+
+	@Benchmark
+	public long populate(AxiomCounters counters) throws IOException {
+		CountingAxiomSink sink = new CountingAxiomSink();
+		exporter.populate(repository, sink);
+		counters.axioms += sink.getCount();
+
+		return sink.getCount();
+	}
+
+	@Benchmark
+	public long saveOntology(AxiomCounters counters) throws OWLOntologyStorageException {
+		CountingOutputStream out = new CountingOutputStream();
+		manager.saveOntology(onto, new StreamDocumentTarget(out));
+		counters.axioms += onto.getAxiomCount();
+
+		return out.count;
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+}
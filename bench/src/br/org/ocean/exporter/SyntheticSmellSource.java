@@ -0,0 +1,171 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.bson.Document;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Contributor;
+import org.repositoryminer.model.Diff;
+import org.repositoryminer.model.Repository;
+import org.repositoryminer.scm.DiffType;
+
+/**
+ * In-memory stand-in for the miner database, commits and their direct code
+ * analysis are generated on demand from the commit index, always the same for
+ * the same seed, in the documents format persisted by the miner
+ */
+public class SyntheticSmellSource implements ISmellSource {
+
+	private static final long START = 1262304000000L;
+	private static final int COMMITTERS = 64;
+	private static final int PACKAGES = 40;
+
+	private int commits;
+	private long seed;
+	// share of analysed classes with smells
+	private double smellRatio;
+
+	public SyntheticSmellSource(int commits, long seed, double smellRatio) {
+		this.commits = commits;
+		this.seed = seed;
+		this.smellRatio = smellRatio;
+	}
+
+	public static Repository createRepository() {
+		Repository repository = new Repository();
+		repository.setId("000000000000000000000000");
+		repository.setName("synthetic");
+		repository.setPath("/synthetic");
+		repository.setDescription("synthetic repository");
+
+		return repository;
+	}
+
+	@Override
+	public long countCommits(Repository repository, Date since) {
+		return commits;
+	}
+
+	@Override
+	public Iterator<Commit> findCommits(Repository repository, Date since, int batchSize) {
+		return new Iterator<Commit>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < commits;
+			}
+
+			@Override
+			public Commit next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return createCommit(next++);
+			}
+		};
+	}
+
+	@Override
+	public ICommitSmells findSmells(List<Commit> commits) {
+		List<Document> documents = new ArrayList<Document>();
+		for (Commit commit : commits) {
+			Random random = getRandom(Integer.parseInt(commit.getId().substring(1)), 1);
+			for (Diff diff : commit.getDiffs()) {
+				documents.add(createAnalysis(commit, diff, random));
+			}
+		}
+
+		return CodeAnalysisIndex.index(documents);
+	}
+
+	@Override
+	public void close() {
+	}
+
+	public Commit createCommit(int index) {
+		Random random = getRandom(index, 0);
+		int committer = random.nextInt(COMMITTERS);
+
+		List<Diff> diffs = new ArrayList<Diff>();
+		int files = 1 + random.nextInt(4);
+		for (int i = 0; i < files; i++) {
+			String path = "src/pkg" + random.nextInt(PACKAGES) + "/Type" + random.nextInt(500) + ".java";
+			diffs.add(new Diff(path, null, random.nextLong(), DiffType.MODIFY));
+		}
+
+		Commit commit = new Commit();
+		commit.setId("c" + index);
+		commit.setMessage("synthetic commit " + index);
+		commit.setCommitDate(new Date(START + index * 60000L));
+		commit.setAuthoredDate(commit.getCommitDate());
+		commit.setCommitter(new Contributor("Committer " + committer, "committer" + committer + "@synthetic.org"));
+		commit.setAuthor(commit.getCommitter());
+		commit.setParents(index > 0 ? Arrays.asList("c" + (index - 1)) : new ArrayList<String>());
+		commit.setDiffs(diffs);
+
+		return commit;
+	}
+
+	private Document createAnalysis(Commit commit, Diff diff, Random random) {
+		String name = diff.getPath().substring(4, diff.getPath().length() - 5).replace('/', '.');
+
+		List<Document> classes = new ArrayList<Document>();
+		Document clazz = new Document("name", name).append("type", "CLASS_DECLARATION");
+		List<Document> smells = new ArrayList<Document>();
+		if (random.nextDouble() < smellRatio) {
+			switch (random.nextInt(3)) {
+			case 0:
+				smells.add(new Document("codesmell", "GOD_CLASS").append("metrics",
+						new Document("ATFD", random.nextInt(30)).append("WMC", 47 + random.nextInt(60))
+								.append("TCC", random.nextDouble() / 3)));
+				break;
+			case 1:
+				smells.add(new Document("codesmell", "DATA_CLASS").append("metrics",
+						new Document("WOC", random.nextDouble() / 3).append("NOPA", random.nextInt(10))
+								.append("NOAM", random.nextInt(20)).append("WMC", random.nextInt(31))));
+				break;
+			default:
+				smells.add(new Document("codesmell", "BRAIN_CLASS").append("metrics",
+						new Document("BRAIN_METHOD", 1 + random.nextInt(3)).append("LOC", 195 + random.nextInt(800))
+								.append("WMC", 47 + random.nextInt(60)).append("TCC", random.nextDouble() / 2)));
+			}
+			smells.add(new Document("codesmell", "LONG_METHOD").append("methods", createMethods(random, false)));
+			if (random.nextBoolean()) {
+				smells.add(new Document("codesmell", "BRAIN_METHOD").append("methods", createMethods(random, true)));
+			}
+		}
+		clazz.append("codesmells", smells);
+		classes.add(clazz);
+
+		return new Document("commit", commit.getId()).append("filehash", diff.getHash())
+				.append("package", name.substring(0, name.lastIndexOf('.'))).append("classes", classes);
+	}
+
+	private List<Document> createMethods(Random random, boolean brain) {
+		List<Document> methods = new ArrayList<Document>();
+		int count = 1 + random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			Document metrics = new Document("MLOC", 65 + random.nextInt(200));
+			if (brain) {
+				metrics.append("CYCLO", 4 + random.nextInt(20)).append("MAXNESTING", 5 + random.nextInt(4))
+						.append("NOAV", 7 + random.nextInt(10));
+			}
+			methods.add(new Document("signature", "method" + i + "(int,String)").append("metrics", metrics));
+		}
+
+		return methods;
+	}
+
+	private Random getRandom(int index, int stream) {
+		return new Random(seed ^ (index * 0x9E3779B97F4A7C15L) ^ stream);
+	}
+
+}
@@ -0,0 +1,27 @@
+package br.org.ocean.exporter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("br.org.ocean.Export")
+@Label("Export")
+@Category("OCEAN")
+@Description("A whole ontology export")
+class ExportEvent extends jdk.jfr.Event {
+
+	@Label("Commits")
+	int commits;
+
+	@Label("Exported Commits")
+	@Description("Commits with smells")
+	int exportedCommits;
+
+	@Label("Axioms")
+	long axioms;
+
+	@Label("Commits per Second")
+	double commitsPerSecond;
+
+}
@@ -0,0 +1,21 @@
+package br.org.ocean.exporter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("br.org.ocean.ExportStage")
+@Label("Export Stage")
+@Category("OCEAN")
+@Description("One run of a stage of an ontology export")
+class ExportStageEvent extends jdk.jfr.Event {
+
+	@Label("Stage")
+	String stage;
+
+	@Label("Count")
+	@Description("Commits, smells or axioms handled, see the stage")
+	long count;
+
+}
@@ -0,0 +1,50 @@
+package br.org.ocean.exporter;
+
+/**
+ * Records export events with JFR, loaded by {@link JfrEvents} when the JVM
+ * has it
+ */
+class JfrEventRecorder implements IEventRecorder {
+
+	@Override
+	public Object beginStage() {
+		ExportStageEvent event = new ExportStageEvent();
+		event.begin();
+
+		return event;
+	}
+
+	@Override
+	public void commitStage(Object stageEvent, ExportStage stage, long count) {
+		ExportStageEvent event = (ExportStageEvent) stageEvent;
+		event.end();
+		if (event.shouldCommit()) {
+			event.stage = stage.getLabel();
+			event.count = count;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginExport() {
+		ExportEvent event = new ExportEvent();
+		event.begin();
+
+		return event;
+	}
+
+	@Override
+	public void commitExport(Object exportEvent, int commits, int exportedCommits, long axioms,
+			double commitsPerSecond) {
+		ExportEvent event = (ExportEvent) exportEvent;
+		event.end();
+		if (event.shouldCommit()) {
+			event.commits = commits;
+			event.exportedCommits = exportedCommits;
+			event.axioms = axioms;
+			event.commitsPerSecond = commitsPerSecond;
+			event.commit();
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package br.org.ocean;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.repositoryminer.codesmell.direct.BrainClass;
+import org.repositoryminer.codesmell.direct.BrainMethod;
+import org.repositoryminer.codesmell.direct.DataClass;
+import org.repositoryminer.codesmell.direct.GodClass;
+import org.repositoryminer.codesmell.direct.LongMethod;
+import org.repositoryminer.listener.mining.IMiningListener;
+import org.repositoryminer.mining.RepositoryMiner;
+import org.repositoryminer.model.Reference;
+import org.repositoryminer.parser.java.JavaParser;
+import org.repositoryminer.scm.ISCM;
+import org.repositoryminer.scm.ReferenceType;
+import org.repositoryminer.scm.SCMFactory;
+import org.repositoryminer.scm.SCMType;
+
+/**
+ * Miners set up with the parsers and smell detectors used by OCEAN
+ */
+public class Miners {
+
+	public static RepositoryMiner create(String projectPath, String tempPath, String projectName,
+			IMiningListener listener) {
+		RepositoryMiner miner = new RepositoryMiner(projectPath, tempPath, projectName, "", SCMType.GIT);
+		// setup miner
+		miner.addParser(new JavaParser());
+		miner.setMiningListener(listener);
+
+		miner.addDirectCodeSmell(new GodClass());
+		miner.addDirectCodeSmell(new DataClass());
+		miner.addDirectCodeSmell(new BrainClass());
+		miner.addDirectCodeSmell(new LongMethod());
+		miner.addDirectCodeSmell(new BrainMethod());
+		// miner.addDirectCodeSmell(new FeatureEnvy());
+		// miner.addDirectCodeSmell(new ComplexMethod());
+
+		return miner;
+	}
+
+	/**
+	 * @return a directory under tempPath for the working copy of a single
+	 *         reference, so references can be mined at the same time
+	 */
+	public static String getWorkingCopy(String tempPath, String projectName, String reference) {
+		File workingCopy = new File(tempPath, (projectName + "_" + reference).replaceAll("[^A-Za-z0-9._-]", "_"));
+		workingCopy.mkdirs();
+
+		return workingCopy.getPath();
+	}
+
+	/**
+	 * @return the newest commit of every tag, by tag, an empty id for tags
+	 *         without commits
+	 */
+	public static Map<String, String> getTagHeads(String projectPath, List<String> tags) {
+		Map<String, String> heads = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, List<String>> tag : getTagCommits(projectPath, tags).entrySet()) {
+			// listed from the newest
+			heads.put(tag.getKey(), tag.getValue().isEmpty() ? "" : tag.getValue().get(0));
+		}
+
+		return heads;
+	}
+
+	/**
+	 * @return the commits of every tag, by tag, from the newest, none for
+	 *         tags that do not exist
+	 */
+	public static Map<String, List<String>> getTagCommits(String projectPath, List<String> tags) {
+		Map<String, List<String>> commits = new LinkedHashMap<String, List<String>>();
+		ISCM scm = SCMFactory.getSCM(SCMType.GIT);
+		scm.open(projectPath);
+		try {
+			// commits are looked up by the path of the tag, refs/tags/<name>
+			Map<String, String> paths = new HashMap<String, String>();
+			for (Reference ref : scm.getReferences()) {
+				if (ref.getType().equals(ReferenceType.TAG)) {
+					paths.put(ref.getName(), ref.getPath());
+				}
+			}
+			for (String tag : tags) {
+				List<String> tagCommits = paths.containsKey(tag)
+						? scm.getReferenceCommits(paths.get(tag), ReferenceType.TAG) : null;
+				commits.put(tag, tagCommits != null ? tagCommits : new ArrayList<String>());
+			}
+		} finally {
+			scm.close();
+		}
+
+		return commits;
+	}
+
+}
@@ -0,0 +1,127 @@
+package br.org.ocean.batch;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.repositoryminer.persistence.Connection;
+
+import br.org.ocean.exporter.BaseOntologies;
+
+/**
+ * Headless entry point, mines and exports every repository/tag of a manifest
+ * (a CSV file with the path of the repository, the tag and, optionally, the
+ * name of the repository on each line) sharing a single connection and a
+ * single copy of the base ontologies
+ */
+public class BatchExecutor {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: BatchExecutor <manifest.csv> [concurrent repositories]");
+			System.exit(1);
+		}
+
+		// load props
+		InputStream configStream = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream("resources/config.properties");
+		Properties props = new Properties();
+		props.load(configStream);
+		int threads = Integer.parseInt(args.length > 1 ? args[1] : props.getProperty("batch.threads", "1"));
+		// setup connection with mongodb
+		Connection conn = Connection.getInstance();
+		conn.connect(props.getProperty("bd.uri"), props.getProperty("bd.name"));
+
+		BaseOntologies base = BaseOntologies.read(props.getProperty("ontos.ocean.path"));
+		List<BatchJob> jobs = readManifest(new File(args[0]), props, base);
+
+		// the tags of a repository are mined one after the other, they would
+		// insert the same commits, only different repositories run at once
+		Map<String, List<BatchJob>> jobsByRepository = new LinkedHashMap<String, List<BatchJob>>();
+		for (BatchJob job : jobs) {
+			List<BatchJob> repositoryJobs = jobsByRepository.get(job.getRepositoryName());
+			if (repositoryJobs == null) {
+				repositoryJobs = new ArrayList<BatchJob>();
+				jobsByRepository.put(job.getRepositoryName(), repositoryJobs);
+			}
+			repositoryJobs.add(job);
+		}
+
+		long start = System.currentTimeMillis();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jobsByRepository.size())));
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (final List<BatchJob> repositoryJobs : jobsByRepository.values()) {
+				results.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						for (BatchJob job : repositoryJobs) {
+							job.call();
+						}
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			pool.shutdown();
+			conn.close();
+		}
+		long millis = System.currentTimeMillis() - start;
+
+		// summary
+		int failed = 0;
+		long commits = 0;
+		long exported = 0;
+		System.out.println("--- " + jobs.size() + " jobs of " + jobsByRepository.size() + " repositories, " + threads
+				+ " repositories at a time");
+		for (BatchJob job : jobs) {
+			System.out.println(job);
+			if (job.getError() != null) {
+				failed++;
+			} else {
+				commits += job.getVisitedCommits();
+				exported += job.getExportedCommits();
+			}
+		}
+		System.out.println(String.format("--- %d failed, %d commits visited in %.1fs (%.1f commits/s), %d exported",
+				failed, commits, millis / 1000.0, commits / Math.max(millis / 1000.0, 0.001), exported));
+
+		System.exit(failed == 0 ? 0 : 2);
+	}
+
+	private static List<BatchJob> readManifest(File manifest, Properties props, BaseOntologies base)
+			throws Exception {
+		List<BatchJob> jobs = new ArrayList<BatchJob>();
+		try (Reader reader = new FileReader(manifest)) {
+			for (CSVRecord record : CSVFormat.DEFAULT.withCommentMarker('#').withIgnoreSurroundingSpaces()
+					.withIgnoreEmptyLines().parse(reader)) {
+				String path = record.get(0);
+				String tag = record.get(1);
+				String name;
+				if (record.size() > 2) {
+					name = record.get(2);
+				} else {
+					name = new File(path).getName();
+				}
+
+				jobs.add(new BatchJob(path, tag, name, props, base));
+			}
+		}
+
+		return jobs;
+	}
+
+}
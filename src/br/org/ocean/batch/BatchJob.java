@@ -0,0 +1,153 @@
+package br.org.ocean.batch;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.repositoryminer.listener.mining.NullMiningListener;
+import org.repositoryminer.mining.RepositoryMiner;
+import org.repositoryminer.model.Repository;
+import org.repositoryminer.scm.ReferenceType;
+
+import br.org.ocean.IExportProgressListener;
+import br.org.ocean.ILogger;
+import br.org.ocean.Miners;
+import br.org.ocean.exporter.BaseOntologies;
+import br.org.ocean.exporter.ExportCache;
+import br.org.ocean.exporter.OntoExporter;
+
+/**
+ * Mines a tag of a repository and exports it, without any UI, keeping the
+ * time spent on each step
+ */
+public class BatchJob implements Callable<BatchJob>, ILogger, IExportProgressListener {
+
+	private String path;
+	private String tag;
+	private String name;
+
+	private Properties props;
+	private BaseOntologies base;
+
+	private long miningMillis;
+	private long exportMillis;
+	private int visitedCommits;
+	private int exportedCommits;
+	private Exception error;
+
+	public BatchJob(String path, String tag, String name, Properties props, BaseOntologies base) {
+		this.path = path;
+		this.tag = tag;
+		this.name = name;
+		this.props = props;
+		this.base = base;
+	}
+
+	@Override
+	public BatchJob call() {
+		try {
+			// every job mines in its own working copy
+			String tempPath = Miners.getWorkingCopy(props.getProperty("miner.temppath"), name, tag);
+
+			RepositoryMiner miner = Miners.create(path, tempPath, name, new NullMiningListener());
+			miner.addReference(tag, ReferenceType.TAG);
+
+			// the tag may have been exported already, with nothing changed since
+			ExportCache cache = ExportCache.open(props);
+			String cacheKey = null;
+			if (cache != null) {
+				cacheKey = ExportCache.getKey(name, Miners.getTagHeads(path, Collections.singletonList(tag)),
+						miner.getDirectCodeSmells(), props, base.getLastModified());
+				File cached = cache.find(cacheKey);
+				if (cached != null) {
+					log("nothing changed since the last export, ontology found at '" + cached + "'");
+					return this;
+				}
+			}
+
+			log("mining...");
+			long start = System.currentTimeMillis();
+			Repository repository = miner.mine();
+			miningMillis = System.currentTimeMillis() - start;
+
+			log("exporting to ontology...");
+			start = System.currentTimeMillis();
+			OntoExporter exporter = new OntoExporter().init(this, this, props, base);
+			exporter.export(repository, tag);
+			exportMillis = System.currentTimeMillis() - start;
+			exportedCommits = exporter.getExportedCommits();
+			if (cache != null) {
+				cache.store(cacheKey, exporter.getOutputFile());
+			}
+
+			log(toString());
+		} catch (Exception e) {
+			error = e;
+
+			log("ERROR: " + e.getMessage());
+		}
+
+		return this;
+	}
+
+	@Override
+	public BatchJob log(String message) {
+		System.out.println("[" + getId() + "] " + message);
+
+		return this;
+	}
+
+	@Override
+	public void exportStart(int maxSteps) {
+	}
+
+	@Override
+	public void exportProgress(int step) {
+		visitedCommits = step;
+	}
+
+	public String getId() {
+		return name + "@" + tag;
+	}
+
+	public long getMiningMillis() {
+		return miningMillis;
+	}
+
+	public long getExportMillis() {
+		return exportMillis;
+	}
+
+	public String getRepositoryName() {
+		return name;
+	}
+
+	public int getVisitedCommits() {
+		return visitedCommits;
+	}
+
+	/**
+	 * @return how many of the visited commits had smells and were added to
+	 *         the ontology
+	 */
+	public int getExportedCommits() {
+		return exportedCommits;
+	}
+
+	public Exception getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		if (error != null) {
+			return getId() + " failed: " + error.getMessage();
+		}
+
+		return String.format("%s mined in %.1fs, visited %d commits in %.1fs (%.1f commits/s), %d exported",
+				getId(), miningMillis / 1000.0, visitedCommits, exportMillis / 1000.0,
+				visitedCommits / Math.max(exportMillis / 1000.0, 0.001), exportedCommits);
+	}
+
+}
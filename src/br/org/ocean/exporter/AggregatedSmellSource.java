@@ -0,0 +1,111 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Repository;
+
+import com.mongodb.client.MongoCursor;
+
+import br.org.ocean.persistence.SmellyCommitHandler;
+
+/**
+ * Commits that produced smells, joined with their smelly classes by the
+ * database (export.query=aggregate), so commits without smells are neither
+ * transferred nor parsed
+ */
+public class AggregatedSmellSource implements ISmellSource {
+
+	private SmellyCommitHandler handler = new SmellyCommitHandler();
+	private MongoCursor<Document> cursor;
+	// analyses that came with the commits not handed to findSmells yet, that
+	// may be called from another thread when prefetching
+	private Map<String, List<Document>> analysesByCommit = new ConcurrentHashMap<String, List<Document>>();
+
+	/**
+	 * @return how many commits of the repository, committed at or after since,
+	 *         produced smells
+	 */
+	@Override
+	public long countCommits(Repository repository, Date since) {
+		return handler.countSmellyCommits(repository.getId(), since);
+	}
+
+	@Override
+	public Iterator<Commit> findCommits(Repository repository, Date since, int batchSize) {
+		close();
+		cursor = handler.findSmellyCommits(repository.getId(), since, batchSize);
+
+		return new Iterator<Commit>() {
+			private Commit next;
+
+			@Override
+			public boolean hasNext() {
+				while ((next == null) && cursor.hasNext()) {
+					next = parse(cursor.next());
+				}
+
+				return next != null;
+			}
+
+			@Override
+			public Commit next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Commit commit = next;
+				next = null;
+
+				return commit;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private Commit parse(Document document) {
+		List<Document> commits = (List<Document>) document.get("commit");
+		// analysis of a commit that is no longer there
+		if ((commits == null) || commits.isEmpty()) {
+			return null;
+		}
+
+		Commit commit = Commit.parseDocument(commits.get(0));
+		analysesByCommit.put(commit.getId(), (List<Document>) document.get("analyses"));
+
+		return commit;
+	}
+
+	@Override
+	public ICommitSmells findSmells(List<Commit> commits) {
+		// the analyses are already here, in the shape the index expects
+		List<Document> documents = new ArrayList<Document>();
+		for (Commit commit : commits) {
+			List<Document> analyses = analysesByCommit.remove(commit.getId());
+			if (analyses != null) {
+				for (Document analysis : analyses) {
+					documents.add(new Document("commit", commit.getId()).append("filehash", analysis.get("filehash"))
+							.append("classes", analysis.get("classes")));
+				}
+			}
+		}
+
+		return CodeAnalysisIndex.index(documents);
+	}
+
+	@Override
+	public void close() {
+		if (cursor != null) {
+			cursor.close();
+			cursor = null;
+		}
+		analysesByCommit.clear();
+	}
+
+}
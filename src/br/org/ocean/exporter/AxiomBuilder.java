@@ -0,0 +1,248 @@
+package br.org.ocean.exporter;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Contributor;
+import org.repositoryminer.model.MethodCodeSmell;
+import org.repositoryminer.model.Metric;
+import org.repositoryminer.model.Repository;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.PrefixManager;
+import org.semanticweb.owlapi.util.DefaultPrefixManager;
+
+/**
+ * Creates the individuals (and their axioms) of repositories, committers,
+ * commits, smells and metrics, every axiom goes to the given sink
+ */
+public class AxiomBuilder {
+	static final PrefixManager smellsPrefix = new DefaultPrefixManager(
+			"http://www.semanticweb.org/resys/ontologies/2016/1/codesmells#");
+	static final PrefixManager metricsPrefix = new DefaultPrefixManager(
+			"http://www.semanticweb.org/resys/ontologies/2016/1/metrics#");
+	static final PrefixManager repositoriesPrefix = new DefaultPrefixManager(
+			"http://www.semanticweb.org/resys/ontologies/2016/1/repositories#");
+	static final PrefixManager oceanPrefix = new DefaultPrefixManager(
+			"http://www.semanticweb.org/resys/ontologies/2016/2/ocean#");
+
+	private OWLDataFactory factory;
+	private IAxiomSink sink;
+	private IIdStrategy ids;
+	private boolean compactMetrics;
+
+	public AxiomBuilder(OWLDataFactory factory, IAxiomSink sink, IIdStrategy ids) {
+		this(factory, sink, ids, false);
+	}
+
+	/**
+	 * @param compactMetrics
+	 *            true if metrics are data properties of their smells instead
+	 *            of individuals
+	 */
+	public AxiomBuilder(OWLDataFactory factory, IAxiomSink sink, IIdStrategy ids, boolean compactMetrics) {
+		this.factory = factory;
+		this.sink = sink;
+		this.ids = ids;
+		this.compactMetrics = compactMetrics;
+	}
+
+	public OWLIndividual addRepository(Repository repository) {
+		// adds a repository individual
+		OWLClass repo = factory.getOWLClass(":Repository", repositoriesPrefix);
+		OWLNamedIndividual repositoryInd = factory.getOWLNamedIndividual(ids.getRepositoryId(repository), oceanPrefix);
+		OWLClassAssertionAxiom repositoryAssertion = factory.getOWLClassAssertionAxiom(repo, repositoryInd);
+		sink.addAxiom(repositoryAssertion);
+		// name of the project
+		OWLDataProperty nameValue = factory.getOWLDataProperty("name", repositoriesPrefix);
+		OWLDataPropertyAssertionAxiom nameAssertion = factory.getOWLDataPropertyAssertionAxiom(nameValue, repositoryInd,
+				repository.getName());
+		sink.addAxiom(nameAssertion);
+
+		return repositoryInd;
+	}
+
+	public OWLIndividual getCommitter(String email) {
+		return factory.getOWLNamedIndividual(email, oceanPrefix);
+	}
+
+	public OWLIndividual addCommitter(Contributor committer, String email) {
+		// adds committer if not added
+		OWLClass committerClazz = factory.getOWLClass(":Committer", repositoriesPrefix);
+		OWLIndividual committerIndiv = factory.getOWLNamedIndividual(email, oceanPrefix);
+		OWLClassAssertionAxiom committerAssertion = factory.getOWLClassAssertionAxiom(committerClazz, committerIndiv);
+		sink.addAxiom(committerAssertion);
+		// name of the committer
+		OWLDataProperty nameValue = factory.getOWLDataProperty("name", repositoriesPrefix);
+		OWLDataPropertyAssertionAxiom measuredValueAssertion = factory.getOWLDataPropertyAssertionAxiom(nameValue,
+				committerIndiv, committer.getName());
+		sink.addAxiom(measuredValueAssertion);
+
+		return committerIndiv;
+	}
+
+	/**
+	 * Adds to a committer how many of the exported commits are theirs and how
+	 * many smells they introduced and removed
+	 */
+	public void addCommitterSummary(String email, int commits, int introduced, int removed) {
+		OWLIndividual committerInd = getCommitter(email);
+		addCount("smellyCommits", committerInd, commits);
+		addCount("introducedSmells", committerInd, introduced);
+		addCount("removedSmells", committerInd, removed);
+	}
+
+	private void addCount(String property, OWLIndividual individual, int count) {
+		OWLDataProperty countValue = factory.getOWLDataProperty(property, oceanPrefix);
+		OWLDataPropertyAssertionAxiom countAssertion = factory.getOWLDataPropertyAssertionAxiom(countValue,
+				individual, count);
+		sink.addAxiom(countAssertion);
+	}
+
+	public OWLIndividual addCommit(Commit commit, OWLIndividual committerInd) {
+		// adds a commit individual
+		OWLClass commitClazz = factory.getOWLClass(":Commit", repositoriesPrefix);
+		OWLIndividual commitInd = factory.getOWLNamedIndividual(commit.getId(), oceanPrefix);
+		OWLClassAssertionAxiom commitAssertion = factory.getOWLClassAssertionAxiom(commitClazz, commitInd);
+		sink.addAxiom(commitAssertion);
+		// date of the commit
+		OWLDataProperty dateValue = factory.getOWLDataProperty("datetime", repositoriesPrefix);
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
+		String commitDate = dateFormat.format(commit.getCommitDate());
+		OWLDataPropertyAssertionAxiom dateValueAssertion = factory.getOWLDataPropertyAssertionAxiom(dateValue,
+				commitInd, commitDate);
+		sink.addAxiom(dateValueAssertion);
+		// binds the commit to the committer
+		OWLObjectProperty hasCommited = factory.getOWLObjectProperty("hasCommited", repositoriesPrefix);
+		OWLObjectPropertyAssertionAxiom hasCommitedAssertion = factory.getOWLObjectPropertyAssertionAxiom(hasCommited,
+				committerInd, commitInd);
+		sink.addAxiom(hasCommitedAssertion);
+
+		return commitInd;
+	}
+
+	public void addCodeSmells(String commitId, Map<String, List<CodeSmell>> smellsByClass, OWLIndividual commitInd) {
+		for (Entry<String, List<CodeSmell>> e : smellsByClass.entrySet()) {
+			List<CodeSmell> smells = e.getValue();
+			for (CodeSmell smell : smells) {
+				OWLIndividual smellInd = addCodeSmell(getCodeSmell(commitId, e.getKey(), smell), e.getKey(), smell);
+				// links commit to smell (hasIntroduced)
+				addCommitLink("hasIntroduced", commitInd, smellInd);
+			}
+		}
+	}
+
+	/**
+	 * Adds the smells introduced by a commit and links the commit to the
+	 * smells it removed, that were added by previous commits
+	 */
+	public void addSmellChanges(SmellChanges changes, OWLIndividual commitInd) {
+		for (SmellChanges.Introduced introduced : changes.getIntroduced()) {
+			OWLIndividual smellInd = addCodeSmell(introduced.getIndividual(), introduced.getClazzName(),
+					introduced.getSmell());
+			addCommitLink("hasIntroduced", commitInd, smellInd);
+		}
+		for (OWLIndividual smellInd : changes.getRemoved()) {
+			addCommitLink("hasRemoved", commitInd, smellInd);
+		}
+	}
+
+	private void addCommitLink(String property, OWLIndividual commitInd, OWLIndividual smellInd) {
+		OWLObjectProperty link = factory.getOWLObjectProperty(property, oceanPrefix);
+		OWLObjectPropertyAssertionAxiom linkAssertion = factory.getOWLObjectPropertyAssertionAxiom(link, commitInd,
+				smellInd);
+		sink.addAxiom(linkAssertion);
+	}
+
+	/**
+	 * @return the individual of a smell found by a commit in a class, only
+	 *         named, nothing is added
+	 */
+	public OWLNamedIndividual getCodeSmell(String commitId, String clazzName, CodeSmell smell) {
+		String signature = null;
+		if (smell instanceof MethodCodeSmell) {
+			signature = ((MethodCodeSmell) smell).getSignature();
+		}
+		String label = smell.getSmellId().getLabel();
+
+		return factory.getOWLNamedIndividual(ids.getSmellId(commitId, clazzName, label, signature) + "_" + label,
+				oceanPrefix);
+	}
+
+	private OWLIndividual addCodeSmell(OWLNamedIndividual smellInd, String clazzName, CodeSmell smell) {
+		// add a "class smell"
+		OWLClass smellClazz = factory.getOWLClass(":" + smell.getSmellId().getLabel(), smellsPrefix);
+		OWLClassAssertionAxiom smellAssertion = factory.getOWLClassAssertionAxiom(smellClazz, smellInd);
+		sink.addAxiom(smellAssertion);
+		// and the location of the smell in the source code
+		OWLDataProperty foundInValue = factory.getOWLDataProperty("foundIn", oceanPrefix);
+		OWLDataPropertyAssertionAxiom foundInValueAssertion = factory.getOWLDataPropertyAssertionAxiom(foundInValue,
+				smellInd, clazzName);
+		sink.addAxiom(foundInValueAssertion);
+		// add all metrics used to detect the smell
+		for (Metric metric : smell.getMetrics()) {
+			addMetric(smellInd, metric.getName(), metric.getValue());
+		}
+		if (smell instanceof MethodCodeSmell) {
+			// a "method smell" is also found in its method
+			OWLDataPropertyAssertionAxiom signatureAssertion = factory.getOWLDataPropertyAssertionAxiom(foundInValue,
+					smellInd, ((MethodCodeSmell) smell).getSignature());
+			sink.addAxiom(signatureAssertion);
+		}
+
+		return smellInd;
+	}
+
+	/**
+	 * @return the name of the metric in the metrics ontology
+	 */
+	static String getMetricName(String metricName) {
+		// BRAIN_METHOD is a smell but also a metric of the BRAIN_CLASS smell
+		// we are going to map it as BM when used as metric
+		if (metricName.equals("BRAIN_METHOD")) {
+			return "BM";
+		}
+
+		return metricName;
+	}
+
+	private void addMetric(OWLIndividual codeSmellInd, String metricName, double value) {
+		metricName = getMetricName(metricName);
+		if (compactMetrics) {
+			// a single value of the smell (see ocean-compact.owl)
+			OWLDataProperty hasMetric = factory.getOWLDataProperty("has" + metricName, oceanPrefix);
+			OWLDataPropertyAssertionAxiom hasMetricAssertion = factory.getOWLDataPropertyAssertionAxiom(hasMetric,
+					codeSmellInd, value);
+			sink.addAxiom(hasMetricAssertion);
+			return;
+		}
+		
+		OWLClass metric = factory.getOWLClass(":" + metricName, metricsPrefix);
+		OWLNamedIndividual metricInd = factory.getOWLNamedIndividual(ids.getMetricId(metricName, value) + "_" + metricName,
+				oceanPrefix);
+		OWLClassAssertionAxiom metricAssertion = factory.getOWLClassAssertionAxiom(metric, metricInd);
+		sink.addAxiom(metricAssertion);
+
+		OWLDataProperty measuredValue = factory.getOWLDataProperty("measuredValue", metricsPrefix);
+		OWLDataPropertyAssertionAxiom measuredValueAssertion = factory.getOWLDataPropertyAssertionAxiom(measuredValue,
+				metricInd, value);
+		sink.addAxiom(measuredValueAssertion);
+
+		OWLObjectProperty hasMeasured = factory.getOWLObjectProperty("hasMeasured", oceanPrefix);
+		OWLObjectPropertyAssertionAxiom hasMeasuredAssertion = factory.getOWLObjectPropertyAssertionAxiom(hasMeasured,
+				codeSmellInd, metricInd);
+		sink.addAxiom(hasMeasuredAssertion);
+	}
+
+}
@@ -0,0 +1,132 @@
+package br.org.ocean.exporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.parameters.OntologyCopy;
+
+/**
+ * The ocean ontology and the ontologies it imports, parsed once per JVM into
+ * a template no export writes to, every export works on its own copy of it
+ */
+public class BaseOntologies {
+	// imported by ocean.owl, they import nothing themselves
+	private static final String[] IMPORTS = { "codesmells", "repositories", "metrics" };
+	private static final String OCEAN = "ocean";
+	// import ocean.owl, loaded only by the exports that need them
+	private static final String[] EXTENSIONS = { "ocean-compact" };
+
+	// templates by ontologies folder
+	private static final Map<File, BaseOntologies> CACHE = new HashMap<File, BaseOntologies>();
+
+	private List<OWLOntology> imports;
+	private OWLOntology ocean;
+	private Map<String, OWLOntology> extensions;
+	// to notice ontologies changed on disk
+	private long lastModified;
+
+	private BaseOntologies(List<OWLOntology> imports, OWLOntology ocean, Map<String, OWLOntology> extensions,
+			long lastModified) {
+		this.imports = imports;
+		this.ocean = ocean;
+		this.extensions = extensions;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @return when any of the ontologies last changed on disk
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return the template of the ontologies in the folder, parsed only the
+	 *         first time or if the ontologies have changed since then
+	 */
+	public static BaseOntologies read(String path) throws IOException, OWLOntologyCreationException {
+		File folder = new File(path).getCanonicalFile();
+		long lastModified = getLastModified(folder);
+		synchronized (CACHE) {
+			BaseOntologies base = CACHE.get(folder);
+			if ((base == null) || (base.lastModified != lastModified)) {
+				base = parse(folder, lastModified);
+				CACHE.put(folder, base);
+			}
+
+			return base;
+		}
+	}
+
+	private static BaseOntologies parse(File folder, long lastModified) throws OWLOntologyCreationException {
+		// the template manager is never handed out, so nothing changes it
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		List<OWLOntology> imports = new ArrayList<OWLOntology>();
+		for (String name : IMPORTS) {
+			imports.add(manager.loadOntologyFromOntologyDocument(new File(folder, name + ".owl")));
+		}
+		// the imports are resolved by the ontologies already loaded
+		OWLOntology ocean = manager.loadOntologyFromOntologyDocument(new File(folder, OCEAN + ".owl"));
+		Map<String, OWLOntology> extensions = new HashMap<String, OWLOntology>();
+		for (String name : EXTENSIONS) {
+			File file = new File(folder, name + ".owl");
+			if (file.exists()) {
+				extensions.put(name, manager.loadOntologyFromOntologyDocument(file));
+			}
+		}
+
+		return new BaseOntologies(imports, ocean, extensions, lastModified);
+	}
+
+	private static long getLastModified(File folder) {
+		long lastModified = new File(folder, OCEAN + ".owl").lastModified();
+		for (String name : IMPORTS) {
+			lastModified = Math.max(lastModified, new File(folder, name + ".owl").lastModified());
+		}
+		for (String name : EXTENSIONS) {
+			lastModified = Math.max(lastModified, new File(folder, name + ".owl").lastModified());
+		}
+
+		return lastModified;
+	}
+
+	/**
+	 * Copies the imported ontologies and then the ocean ontology into the
+	 * manager, the copies share the immutable axioms of the template so
+	 * nothing is parsed again, and axioms added to a copy stay in that copy
+	 *
+	 * @return the copy of the ocean ontology
+	 */
+	public OWLOntology loadInto(OWLOntologyManager manager) throws OWLOntologyCreationException {
+		for (OWLOntology imported : imports) {
+			manager.copyOntology(imported, OntologyCopy.SHALLOW);
+		}
+
+		return manager.copyOntology(ocean, OntologyCopy.SHALLOW);
+	}
+
+	/**
+	 * Copies an extension of the ocean ontology into a manager the ocean
+	 * ontology was loaded into
+	 *
+	 * @return the copy of the extension
+	 */
+	public OWLOntology loadExtensionInto(OWLOntologyManager manager, String name)
+			throws OWLOntologyCreationException {
+		OWLOntology extension = extensions.get(name);
+		if (extension == null) {
+			throw new OWLOntologyCreationException("missing ontology " + name + ".owl");
+		}
+
+		return manager.copyOntology(extension, OntologyCopy.SHALLOW);
+	}
+
+}
@@ -0,0 +1,225 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the N-Triples written to it in a compact binary form: every term is
+ * written once, the first time it is used, and triples refer to terms by
+ * their position in that table
+ * 
+ * <pre>
+ * file    := header record*  (a header may occur again, starting a new table)
+ * header  := 'O' 'R' 'D' 'F' version
+ * record  := TRIPLE varint(subject) varint(predicate) varint(object)
+ *          | IRI string | BLANK string | PLAIN string
+ *          | TYPED string varint(datatype) | LANG string string
+ * string  := varint(length) utf-8 bytes
+ * </pre>
+ * 
+ * Literals keep their N-Triples escapes, {@link BinaryRdfReader} gives the
+ * triples back. The table is started again once it has {@link #MAX_TERMS}
+ * terms, so writer and reader keep a bounded number of them in memory
+ */
+public class BinaryRdfOutputStream extends OutputStream {
+
+	static final byte[] MAGIC = { 'O', 'R', 'D', 'F' };
+	static final int VERSION = 1;
+
+	static final int TRIPLE = 0;
+	static final int IRI = 1;
+	static final int BLANK = 2;
+	static final int PLAIN = 3;
+	static final int TYPED = 4;
+	static final int LANG = 5;
+
+	static final int MAX_TERMS = 1 << 16;
+	// a triple defines its subject, predicate, object and datatype at most
+	private static final int TRIPLE_TERMS = 4;
+
+	private OutputStream out;
+	private Map<String, Integer> terms = new HashMap<String, Integer>();
+	// bytes of the line being written
+	private byte[] line = new byte[512];
+	private int length;
+	private boolean closed;
+
+	public BinaryRdfOutputStream(OutputStream out) throws IOException {
+		this.out = out;
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		out.write(MAGIC);
+		out.write(VERSION);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (b == '\n') {
+			endLine();
+		} else {
+			append(b);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int end = off + len;
+		for (int i = off; i < end; i++) {
+			write(b[i]);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			endLine();
+			out.close();
+		}
+	}
+
+	private void append(int b) {
+		if (length == line.length) {
+			line = Arrays.copyOf(line, line.length * 2);
+		}
+		line[length++] = (byte) b;
+	}
+
+	private void endLine() throws IOException {
+		String triple = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+		length = 0;
+		if (triple.isEmpty() || triple.startsWith("#")) {
+			return;
+		}
+
+		int subjectEnd = termEnd(triple, 0);
+		int predicateStart = skipSpaces(triple, subjectEnd);
+		int predicateEnd = termEnd(triple, predicateStart);
+		int objectStart = skipSpaces(triple, predicateEnd);
+		int objectEnd = termEnd(triple, objectStart);
+		if (!triple.substring(objectEnd).trim().equals(".")) {
+			throw new IOException("not a N-Triples line: " + triple);
+		}
+
+		if (terms.size() > MAX_TERMS - TRIPLE_TERMS) {
+			// a new table, the terms of a triple are all in the same one
+			terms.clear();
+			writeHeader();
+		}
+		// terms are defined before the triple using them
+		int subject = termId(triple.substring(0, subjectEnd));
+		int predicate = termId(triple.substring(predicateStart, predicateEnd));
+		int object = termId(triple.substring(objectStart, objectEnd));
+		out.write(TRIPLE);
+		writeVarint(subject);
+		writeVarint(predicate);
+		writeVarint(object);
+	}
+
+	private int termId(String term) throws IOException {
+		Integer id = terms.get(term);
+		if (id != null) {
+			return id;
+		}
+
+		char first = term.charAt(0);
+		if (first == '<') {
+			out.write(IRI);
+			writeString(term.substring(1, term.length() - 1));
+		} else if (first == '_') {
+			out.write(BLANK);
+			writeString(term.substring(2));
+		} else {
+			int quote = closingQuote(term, 0);
+			String lexical = term.substring(1, quote);
+			String suffix = term.substring(quote + 1);
+			if (suffix.startsWith("^^")) {
+				// the datatype needs its own id first
+				int datatype = termId(suffix.substring(2));
+				out.write(TYPED);
+				writeString(lexical);
+				writeVarint(datatype);
+			} else if (suffix.startsWith("@")) {
+				out.write(LANG);
+				writeString(lexical);
+				writeString(suffix.substring(1));
+			} else {
+				out.write(PLAIN);
+				writeString(lexical);
+			}
+		}
+
+		id = terms.size();
+		terms.put(term, id);
+
+		return id;
+	}
+
+	private static int termEnd(String triple, int start) throws IOException {
+		if (start >= triple.length()) {
+			throw new IOException("not a N-Triples line: " + triple);
+		}
+
+		char first = triple.charAt(start);
+		if (first == '<') {
+			return triple.indexOf('>', start) + 1;
+		}
+
+		int i = start;
+		if (first == '"') {
+			i = closingQuote(triple, start) + 1;
+			if (triple.startsWith("^^", i)) {
+				return triple.indexOf('>', i) + 1;
+			}
+		}
+		while ((i < triple.length()) && !Character.isWhitespace(triple.charAt(i))) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static int closingQuote(String term, int start) {
+		int i = start + 1;
+		while (term.charAt(i) != '"') {
+			i += (term.charAt(i) == '\\') ? 2 : 1;
+		}
+
+		return i;
+	}
+
+	private static int skipSpaces(String triple, int start) {
+		int i = start;
+		while ((i < triple.length()) && Character.isWhitespace(triple.charAt(i))) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		out.write(bytes);
+	}
+
+	private void writeVarint(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+}
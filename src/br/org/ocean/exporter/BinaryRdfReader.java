@@ -0,0 +1,179 @@
+package br.org.ocean.exporter;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads files written by {@link BinaryRdfOutputStream} back as N-Triples,
+ * a triple at a time
+ */
+public class BinaryRdfReader {
+
+	private InputStream in;
+	private List<String> terms = new ArrayList<String>();
+
+	public BinaryRdfReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Writes every triple of the file as N-Triples, the stream is not closed
+	 */
+	public void toNTriples(OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		String triple;
+		while ((triple = readTriple()) != null) {
+			writer.write(triple);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * @return the file as N-Triples, decoded while it is read, closing it
+	 *         closes the file
+	 */
+	public InputStream toInputStream() {
+		return new InputStream() {
+			private byte[] line = new byte[0];
+			private int position;
+
+			@Override
+			public int read() throws IOException {
+				if (!fill()) {
+					return -1;
+				}
+
+				return line[position++] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0) {
+					return 0;
+				}
+				if (!fill()) {
+					return -1;
+				}
+
+				int n = Math.min(len, line.length - position);
+				System.arraycopy(line, position, b, off, n);
+				position += n;
+
+				return n;
+			}
+
+			private boolean fill() throws IOException {
+				if (position < line.length) {
+					return true;
+				}
+
+				String triple = readTriple();
+				if (triple == null) {
+					return false;
+				}
+				line = triple.getBytes(StandardCharsets.UTF_8);
+				position = 0;
+
+				return true;
+			}
+
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		};
+	}
+
+	/**
+	 * @return the next triple as a N-Triples line, null at the end of the
+	 *         file
+	 */
+	public String readTriple() throws IOException {
+		int record;
+		while ((record = in.read()) != -1) {
+			switch (record) {
+			case BinaryRdfOutputStream.TRIPLE:
+				return terms.get(readVarint()) + ' ' + terms.get(readVarint()) + ' ' + terms.get(readVarint())
+						+ " .\n";
+			case BinaryRdfOutputStream.IRI:
+				terms.add("<" + readString() + ">");
+				break;
+			case BinaryRdfOutputStream.BLANK:
+				terms.add("_:" + readString());
+				break;
+			case BinaryRdfOutputStream.PLAIN:
+				terms.add("\"" + readString() + "\"");
+				break;
+			case BinaryRdfOutputStream.TYPED:
+				String lexical = readString();
+				terms.add("\"" + lexical + "\"^^" + terms.get(readVarint()));
+				break;
+			case BinaryRdfOutputStream.LANG:
+				terms.add("\"" + readString() + "\"@" + readString());
+				break;
+			default:
+				readHeader(record);
+			}
+		}
+
+		return null;
+	}
+
+	private void readHeader(int first) throws IOException {
+		byte[] magic = BinaryRdfOutputStream.MAGIC;
+		boolean valid = first == magic[0];
+		for (int i = 1; i < magic.length; i++) {
+			valid &= readByte() == magic[i];
+		}
+		if (!valid || (readByte() != BinaryRdfOutputStream.VERSION)) {
+			throw new IOException("not a binary RDF file or unknown version");
+		}
+		// appended exports and full tables start a new term table
+		terms.clear();
+	}
+
+	private int readByte() throws IOException {
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException();
+		}
+
+		return b;
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	private String readString() throws IOException {
+		byte[] bytes = new byte[readVarint()];
+		int read = 0;
+		while (read < bytes.length) {
+			int n = in.read(bytes, read, bytes.length - read);
+			if (n == -1) {
+				throw new EOFException();
+			}
+			read += n;
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,49 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+/**
+ * Holds axioms until {@link #flush()} hands all of them to the delegate sink
+ * at once, an ontology then applies a single change set instead of one
+ * change per axiom
+ */
+public class BufferedAxiomSink implements IAxiomSink {
+
+	private IAxiomSink delegate;
+	private List<OWLAxiom> axioms = new ArrayList<OWLAxiom>();
+
+	public BufferedAxiomSink(IAxiomSink delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		axioms.add(axiom);
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		this.axioms.addAll(axioms);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (!axioms.isEmpty()) {
+			delegate.addAxioms(axioms);
+			axioms = new ArrayList<OWLAxiom>();
+		}
+		delegate.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		delegate.close();
+	}
+
+}
@@ -0,0 +1,79 @@
+package br.org.ocean.exporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output of a streaming export that can be made durable while the export
+ * goes on: {@link #sync()} ends what was written so far as a file readers
+ * can parse, a complete gzip member or binary table, forces it to disk and
+ * goes on appending to it
+ */
+public class CheckpointOutputStream extends OutputStream {
+
+	private File file;
+	private ExportSettings settings;
+	private OutputStream out;
+
+	/**
+	 * @param append
+	 *            true to write after the end of the file
+	 */
+	public CheckpointOutputStream(File file, boolean append, ExportSettings settings) throws IOException {
+		this.file = file;
+		this.settings = settings;
+		out = ExportFiles.openOutput(file, append, settings);
+	}
+
+	/**
+	 * Cuts off whatever was written after the last checkpoint of a stopped
+	 * export, it is written again when the export resumes
+	 */
+	public static void truncate(File file, long length) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			if (channel.size() > length) {
+				channel.truncate(length);
+				channel.force(true);
+			}
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * @return how many bytes the file has on disk
+	 */
+	public long sync() throws IOException {
+		out.close();
+		long length;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.force(true);
+			length = channel.size();
+		}
+		out = ExportFiles.openOutput(file, true, settings);
+
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+}
@@ -0,0 +1,81 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVPrinter;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+
+/**
+ * Smells of every class across commits (export.aggregates classes): in how
+ * many commits the class had smells, how many smells it had in all of them
+ * and at most in one, and when it had them first and last
+ */
+public class ClassAggregator implements ISmellAggregator {
+
+	private CodeDictionary classes = new CodeDictionary();
+	// by class
+	private int[] commits = new int[256];
+	private long[] smells = new long[256];
+	private int[] maxSmells = new int[256];
+	private long[] firstDates = new long[256];
+	private long[] lastDates = new long[256];
+
+	@Override
+	public String getName() {
+		return "classes";
+	}
+
+	@Override
+	public void addCommit(Commit commit, String committer, Map<String, List<CodeSmell>> smellsByClass,
+			SmellChanges changes) {
+		long date = commit.getCommitDate().getTime();
+		for (Map.Entry<String, List<CodeSmell>> clazzSmells : smellsByClass.entrySet()) {
+			int count = clazzSmells.getValue().size();
+			if (count == 0) {
+				continue;
+			}
+
+			int code = classes.encode(clazzSmells.getKey());
+			if (code == commits.length) {
+				int capacity = code * 2;
+				commits = Arrays.copyOf(commits, capacity);
+				smells = Arrays.copyOf(smells, capacity);
+				maxSmells = Arrays.copyOf(maxSmells, capacity);
+				firstDates = Arrays.copyOf(firstDates, capacity);
+				lastDates = Arrays.copyOf(lastDates, capacity);
+			}
+			if (commits[code]++ == 0) {
+				firstDates[code] = date;
+			}
+			smells[code] += count;
+			maxSmells[code] = Math.max(maxSmells[code], count);
+			lastDates[code] = date;
+		}
+	}
+
+	@Override
+	public String[] getHeader() {
+		return new String[] { "class", "commits", "smells", "max_smells", "first_commit_date", "last_commit_date" };
+	}
+
+	@Override
+	public void printRecords(CSVPrinter printer) throws IOException {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		for (int code = 0; code < classes.size(); code++) {
+			printer.printRecord(classes.get(code), commits[code], smells[code], maxSmells[code],
+					dateFormat.format(new Date(firstDates[code])), dateFormat.format(new Date(lastDates[code])));
+		}
+	}
+
+	@Override
+	public void addAxioms(AxiomBuilder builder) {
+		// classes are not individuals of the ontology
+	}
+
+}
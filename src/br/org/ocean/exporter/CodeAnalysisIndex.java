@@ -0,0 +1,100 @@
+package br.org.ocean.exporter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Diff;
+
+/**
+ * Direct code analysis of a batch of commits indexed by commit and file hash,
+ * smells are parsed only when asked for
+ */
+public class CodeAnalysisIndex implements ICommitSmells {
+
+	private Map<String, Map<Long, List<Document>>> classesByCommit;
+
+	private CodeAnalysisIndex(Map<String, Map<Long, List<Document>>> classesByCommit) {
+		this.classesByCommit = classesByCommit;
+	}
+
+	/**
+	 * @param documents
+	 *            direct code analysis documents, with at least their commit,
+	 *            filehash and classes
+	 */
+	@SuppressWarnings("unchecked")
+	public static CodeAnalysisIndex index(List<Document> documents) {
+		Map<String, Map<Long, List<Document>>> classesByCommit = new HashMap<String, Map<Long, List<Document>>>();
+		for (Document document : documents) {
+			String commitId = document.getString("commit");
+			Map<Long, List<Document>> classesByFile = classesByCommit.get(commitId);
+			if (classesByFile == null) {
+				classesByFile = new HashMap<Long, List<Document>>();
+				classesByCommit.put(commitId, classesByFile);
+			}
+			// keeping the first analysis of a file, as a single lookup would do
+			Long fileHash = ((Number) document.get("filehash")).longValue();
+			if (!classesByFile.containsKey(fileHash)) {
+				List<Document> classes = (List<Document>) document.get("classes");
+				classesByFile.put(fileHash, classes != null ? classes : Collections.<Document>emptyList());
+			}
+		}
+
+		return new CodeAnalysisIndex(classesByCommit);
+	}
+
+	/**
+	 * @return the analysed classes of a file changed by a commit or null if
+	 *         the file was not analysed
+	 */
+	public List<Document> getClasses(String commitId, long fileHash) {
+		Map<Long, List<Document>> classesByFile = classesByCommit.get(commitId);
+		if (classesByFile == null) {
+			return null;
+		}
+
+		return classesByFile.get(fileHash);
+	}
+
+	@Override
+	public Map<String, List<CodeSmell>> getSmells(Commit commit) {
+		Map<String, List<CodeSmell>> smellsByClass = new HashMap<String, List<CodeSmell>>();
+
+		List<Diff> diffs = commit.getDiffs();
+		for (Diff diff : diffs) {
+			List<Document> clazzDocs = getClasses(commit.getId(), diff.getHash());
+			if (clazzDocs != null) {
+				for (Document clazzDoc : clazzDocs) {
+					List<CodeSmell> smells = CodeSmell.parseDocument(clazzDoc);
+					if ((smells != null) && (!smells.isEmpty())) {
+						String clazzName = clazzDoc.getString("name");
+						smellsByClass.put(clazzName, smells);
+					}
+				}
+			}
+		}
+
+		return smellsByClass;
+	}
+
+	@Override
+	public Map<String, Long> getClassFiles(Commit commit) {
+		Map<String, Long> classes = new HashMap<String, Long>();
+		for (Diff diff : commit.getDiffs()) {
+			List<Document> clazzDocs = getClasses(commit.getId(), diff.getHash());
+			if (clazzDocs != null) {
+				for (Document clazzDoc : clazzDocs) {
+					classes.put(clazzDoc.getString("name"), diff.getHash());
+				}
+			}
+		}
+
+		return classes;
+	}
+
+}
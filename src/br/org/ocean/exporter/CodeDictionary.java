@@ -0,0 +1,48 @@
+package br.org.ocean.exporter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strings by code, codes are given in order of appearance from 0 so they can
+ * index primitive arrays
+ */
+class CodeDictionary {
+
+	private Map<String, Integer> codes = new HashMap<String, Integer>();
+	private List<String> values = new ArrayList<String>();
+
+	int encode(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			code = values.size();
+			codes.put(value, code);
+			values.add(value);
+		}
+
+		return code;
+	}
+
+	String get(int code) {
+		return values.get(code);
+	}
+
+	int size() {
+		return values.size();
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(values.size());
+		for (String value : values) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+}
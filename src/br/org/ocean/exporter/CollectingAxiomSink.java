@@ -0,0 +1,39 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+/**
+ * Keeps the axioms, in the order they were added, to be handed later to
+ * another sink
+ */
+public class CollectingAxiomSink implements IAxiomSink {
+
+	private List<OWLAxiom> axioms = new ArrayList<OWLAxiom>();
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		axioms.add(axiom);
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		this.axioms.addAll(axioms);
+	}
+
+	public List<OWLAxiom> getAxioms() {
+		return axioms;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
@@ -0,0 +1,254 @@
+package br.org.ocean.exporter;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.repositoryminer.model.Commit;
+
+/**
+ * Reads the commits to export batch by batch, each with the code analysis of
+ * its commits. With prefetching the next batches are read by background
+ * threads while the current one is exported, at most a fixed number of them
+ * wait to be exported, so reading stops when the export falls behind
+ */
+public class CommitBatchReader implements Closeable {
+
+	private ISmellSource source;
+	private Iterator<Commit> commits;
+	private ExportCheckpoint checkpoint;
+	private ExportStatistics statistics;
+	private int batchSize;
+
+	// prefetching only
+	private BlockingQueue<PendingBatch> pending;
+	private ExecutorService fetchPool;
+	private Thread producer;
+	private boolean ended;
+
+	public CommitBatchReader(ISmellSource source, Iterator<Commit> commits, ExportCheckpoint checkpoint,
+			ExportStatistics statistics, int batchSize) {
+		this.source = source;
+		this.commits = commits;
+		// the export goes on updating the checkpoint while batches are read
+		this.checkpoint = checkpoint.copy();
+		this.statistics = statistics;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Starts reading ahead of the export
+	 *
+	 * @param depth
+	 *            how many batches can wait to be exported
+	 * @param threads
+	 *            how many threads fetch the code analysis of those batches
+	 */
+	public CommitBatchReader prefetch(int depth, int threads) {
+		pending = new ArrayBlockingQueue<PendingBatch>(depth);
+		fetchPool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "export-fetch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				produce();
+			}
+		}, "export-prefetch");
+		producer.setDaemon(true);
+		producer.start();
+
+		return this;
+	}
+
+	private void produce() {
+		PendingBatch last;
+		try {
+			CommitBatch batch;
+			while ((batch = readCommits()) != null) {
+				final CommitBatch fetched = batch;
+				Future<ICommitSmells> smells = fetchPool.submit(new Callable<ICommitSmells>() {
+					@Override
+					public ICommitSmells call() {
+						return findSmells(fetched.getCommits());
+					}
+				});
+				// blocks while the export is behind
+				pending.put(new PendingBatch(batch, smells, null));
+			}
+			last = new PendingBatch(null, null, null);
+		} catch (InterruptedException e) {
+			// closed before the end
+			return;
+		} catch (Throwable e) {
+			// errors too, the export waits for the end of the batches
+			last = new PendingBatch(null, null, e);
+		}
+
+		try {
+			pending.put(last);
+		} catch (InterruptedException e) {
+			// closed before the end
+		}
+	}
+
+	/**
+	 * @return the next batch, with the commits not visited by the last
+	 *         export and their smells, or null if there are no more commits
+	 */
+	public CommitBatch next() {
+		if (pending == null) {
+			CommitBatch batch = readCommits();
+			if (batch != null) {
+				batch.setSmells(findSmells(batch.getCommits()));
+			}
+
+			return batch;
+		}
+
+		if (ended) {
+			return null;
+		}
+		try {
+			PendingBatch next = pending.take();
+			if (next.error != null) {
+				ended = true;
+				throw unchecked(next.error);
+			}
+			if (next.batch == null) {
+				ended = true;
+				return null;
+			}
+			next.batch.setSmells(next.smells.get());
+
+			return next.batch;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while reading commits", e);
+		} catch (ExecutionException e) {
+			throw unchecked(e.getCause());
+		}
+	}
+
+	/**
+	 * @return the failure of a background thread to be thrown by the export,
+	 *         errors are thrown as they are
+	 */
+	private static RuntimeException unchecked(Throwable failure) {
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+
+		return failure instanceof RuntimeException ? (RuntimeException) failure
+				: new IllegalStateException(failure);
+	}
+
+	private CommitBatch readCommits() {
+		ExportStatistics.Timer timer = statistics.start(ExportStage.FETCH_COMMITS);
+		List<Commit> batch = new ArrayList<Commit>(batchSize);
+		while ((batch.size() < batchSize) && commits.hasNext()) {
+			batch.add(commits.next());
+		}
+		timer.stop(batch.size());
+		if (batch.isEmpty()) {
+			return null;
+		}
+
+		// commits of the last exported second may have been exported already
+		List<Commit> newCommits = new ArrayList<Commit>(batch.size());
+		for (Commit commit : batch) {
+			if (!checkpoint.wasVisited(commit)) {
+				newCommits.add(commit);
+			}
+		}
+
+		return new CommitBatch(newCommits, batch.size() - newCommits.size());
+	}
+
+	private ICommitSmells findSmells(List<Commit> batch) {
+		ExportStatistics.Timer timer = statistics.start(ExportStage.FETCH_ANALYSIS);
+		ICommitSmells smells = source.findSmells(batch);
+		timer.stop(batch.size());
+
+		return smells;
+	}
+
+	@Override
+	public void close() {
+		if (producer != null) {
+			producer.interrupt();
+			fetchPool.shutdownNow();
+			try {
+				producer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			producer = null;
+		}
+	}
+
+	/**
+	 * Commits read together and their smells
+	 */
+	public static class CommitBatch {
+		private List<Commit> commits;
+		private int skipped;
+		private ICommitSmells smells;
+
+		CommitBatch(List<Commit> commits, int skipped) {
+			this.commits = Collections.unmodifiableList(commits);
+			this.skipped = skipped;
+		}
+
+		/**
+		 * @return the commits not visited by the last export
+		 */
+		public List<Commit> getCommits() {
+			return commits;
+		}
+
+		/**
+		 * @return how many commits of the batch were visited by the last
+		 *         export
+		 */
+		public int getSkipped() {
+			return skipped;
+		}
+
+		public ICommitSmells getSmells() {
+			return smells;
+		}
+
+		void setSmells(ICommitSmells smells) {
+			this.smells = smells;
+		}
+	}
+
+	private static class PendingBatch {
+		private CommitBatch batch;
+		private Future<ICommitSmells> smells;
+		private Throwable error;
+
+		PendingBatch(CommitBatch batch, Future<ICommitSmells> smells, Throwable error) {
+			this.batch = batch;
+			this.smells = smells;
+			this.error = error;
+		}
+	}
+
+}
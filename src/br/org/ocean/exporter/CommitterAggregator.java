@@ -0,0 +1,81 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVPrinter;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+
+/**
+ * Smells introduced and removed by every committer (export.aggregates
+ * committers), when every smell is exported by every commit that finds it
+ * they all count as introduced, as the ontology links them with
+ * hasIntroduced
+ */
+public class CommitterAggregator implements ISmellAggregator {
+
+	private CodeDictionary committers = new CodeDictionary();
+	// by committer
+	private int[] commits = new int[16];
+	private int[] introduced = new int[16];
+	private int[] removed = new int[16];
+
+	@Override
+	public String getName() {
+		return "committers";
+	}
+
+	@Override
+	public void addCommit(Commit commit, String committer, Map<String, List<CodeSmell>> smells,
+			SmellChanges changes) {
+		int added;
+		int gone;
+		if (changes != null) {
+			added = changes.getIntroduced().size();
+			gone = changes.getRemoved().size();
+		} else {
+			added = 0;
+			for (List<CodeSmell> clazzSmells : smells.values()) {
+				added += clazzSmells.size();
+			}
+			gone = 0;
+		}
+		// the same commits the ontology has
+		if ((added == 0) && (gone == 0)) {
+			return;
+		}
+
+		int code = committers.encode(committer);
+		if (code == commits.length) {
+			commits = Arrays.copyOf(commits, code * 2);
+			introduced = Arrays.copyOf(introduced, code * 2);
+			removed = Arrays.copyOf(removed, code * 2);
+		}
+		commits[code]++;
+		introduced[code] += added;
+		removed[code] += gone;
+	}
+
+	@Override
+	public String[] getHeader() {
+		return new String[] { "committer", "commits", "introduced", "removed" };
+	}
+
+	@Override
+	public void printRecords(CSVPrinter printer) throws IOException {
+		for (int code = 0; code < committers.size(); code++) {
+			printer.printRecord(committers.get(code), commits[code], introduced[code], removed[code]);
+		}
+	}
+
+	@Override
+	public void addAxioms(AxiomBuilder builder) {
+		for (int code = 0; code < committers.size(); code++) {
+			builder.addCommitterSummary(committers.get(code), commits[code], introduced[code], removed[code]);
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package br.org.ocean.exporter;
+
+import org.repositoryminer.model.Repository;
+
+/**
+ * Ids hashed from the content of the individuals, exports of the same data
+ * are reproducible and identical smells/metrics collapse into a single
+ * individual
+ */
+public class ContentIdStrategy implements IIdStrategy {
+	// 64-bit FNV-1a
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	// out of the char range, so ("ab", "c") and ("a", "bc") do not collide
+	private static final int SEPARATOR = 0x10000;
+
+	@Override
+	public String getExportId(Repository repository, String reference) {
+		// every tag of a repository has its own ontology
+		return reference != null ? hash(repository.getName(), repository.getPath(), reference)
+				: getRepositoryId(repository);
+	}
+
+	@Override
+	public String getRepositoryId(Repository repository) {
+		return hash(repository.getName(), repository.getPath());
+	}
+
+	@Override
+	public String getSmellId(String commitId, String clazzName, String smellLabel, String signature) {
+		return hash(commitId, clazzName, smellLabel, signature);
+	}
+
+	@Override
+	public String getMetricId(String metricName, double value) {
+		return hash(metricName, Double.toString(value));
+	}
+
+	private String hash(String... values) {
+		long hash = FNV_OFFSET;
+		for (String value : values) {
+			if (value != null) {
+				for (int i = 0; i < value.length(); i++) {
+					hash ^= value.charAt(i);
+					hash *= FNV_PRIME;
+				}
+			}
+			hash ^= SEPARATOR;
+			hash *= FNV_PRIME;
+		}
+		// spreads the bits of the last chars (murmur3 finalizer)
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return Long.toUnsignedString(hash, 32);
+	}
+
+}
@@ -0,0 +1,324 @@
+package br.org.ocean.exporter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.repositoryminer.codesmell.direct.IDirectCodeSmell;
+
+/**
+ * Exports kept by what they were made of (export.cache=true): repository,
+ * mined tags and their newest commits, smell detectors and the settings that
+ * change the exported files. An export asked again with none of them
+ * changed is found here instead of mining and exporting again. Every entry
+ * is a folder named after the hash of its key, with a copy of the ontology
+ * and of the files written with it, the entries used least recently are
+ * removed when the cache outgrows its size
+ */
+public class ExportCache {
+
+	private static final String ENTRY = "entry.properties";
+	private static final String OUTPUT = "output";
+	private static final String USED = "used";
+	// settings that change how fast an export is, not what it writes
+	private static final List<String> NEUTRAL_SETTINGS = Arrays.asList(ExportSettings.BATCH_SIZE,
+			ExportSettings.THREADS, ExportSettings.FLUSH_COMMITS, ExportSettings.PREFETCH,
+			ExportSettings.PREFETCH_THREADS, ExportSettings.CACHE, ExportSettings.CACHE_SIZE,
+			ExportSettings.CACHE_INVALIDATE, ExportSettings.CHECKPOINT_COMMITS);
+
+	// entries may be shared by exporters running at the same time
+	private static final Object LOCK = new Object();
+
+	private File folder;
+	private long maxSize;
+	// entries are dropped instead of found
+	private boolean invalidating;
+
+	/**
+	 * @param maxSize
+	 *            bytes the entries can take at most
+	 */
+	public ExportCache(File folder, long maxSize) {
+		this.folder = folder;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the cache under the output path of the settings or null if
+	 *         exports are not cached
+	 */
+	public static ExportCache open(Properties properties) {
+		ExportSettings settings = new ExportSettings(properties);
+		if (!settings.isCache()) {
+			return null;
+		}
+
+		ExportCache cache = new ExportCache(new File(properties.getProperty("ontos.output.path"), "cache"),
+				settings.getCacheSize());
+		cache.invalidating = settings.isCacheInvalidate();
+
+		return cache;
+	}
+
+	/**
+	 * @param heads
+	 *            the newest commit of every mined tag, by tag
+	 * @param detectors
+	 *            the smell detectors of the miner, their thresholds included
+	 * @param ontologiesModified
+	 *            when the base ontologies last changed
+	 * @return the hash of everything an export depends on
+	 */
+	public static String getKey(String repositoryName, Map<String, String> heads, List<IDirectCodeSmell> detectors,
+			Properties properties, long ontologiesModified) {
+		StringBuilder key = new StringBuilder();
+		key.append("repository=").append(repositoryName).append('\n');
+		for (Map.Entry<String, String> head : heads.entrySet()) {
+			key.append("tag=").append(head.getKey()).append('@').append(head.getValue()).append('\n');
+		}
+		List<String> smells = new ArrayList<String>();
+		for (IDirectCodeSmell detector : detectors) {
+			smells.add(detector.getId().getLabel() + " "
+					+ (detector.getThresholds() != null ? detector.getThresholds().toJson() : ""));
+		}
+		// the order detectors are run in does not change the smells
+		Collections.sort(smells);
+		for (String smell : smells) {
+			key.append("detector=").append(smell).append('\n');
+		}
+		Map<String, String> settings = new TreeMap<String, String>();
+		for (String name : properties.stringPropertyNames()) {
+			if (name.startsWith("export.") && !NEUTRAL_SETTINGS.contains(name)) {
+				settings.put(name, properties.getProperty(name).trim());
+			}
+		}
+		for (Map.Entry<String, String> setting : settings.entrySet()) {
+			key.append(setting.getKey()).append('=').append(setting.getValue()).append('\n');
+		}
+		key.append("ontologies=").append(ontologiesModified).append('\n');
+
+		return sha256(key.toString());
+	}
+
+	private static String sha256(String value) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : hash) {
+				hex.append(String.format("%02x", b));
+			}
+
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every JVM has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the cached ontology of the key or null if there is none, or if
+	 *         the cache was opened to invalidate its entries
+	 *         (export.cache.invalidate=true), then the entry is removed
+	 */
+	public File find(String key) throws IOException {
+		synchronized (LOCK) {
+			File entry = new File(folder, key);
+			if (invalidating) {
+				delete(entry);
+				return null;
+			}
+			Properties props = readEntry(entry);
+			if (props == null) {
+				return null;
+			}
+			File output = new File(entry, props.getProperty(OUTPUT));
+			if (!output.exists()) {
+				return null;
+			}
+
+			// the entry is used again, it is the last to be evicted
+			props.setProperty(USED, Long.toString(System.currentTimeMillis()));
+			writeEntry(entry, props);
+
+			return output;
+		}
+	}
+
+	/**
+	 * Copies an exported ontology, and the files written next to it (shards,
+	 * smell columns and reports), to the entry of the key, replacing what the
+	 * entry had
+	 *
+	 * @return the cached ontology
+	 */
+	public File store(String key, File output) throws IOException {
+		synchronized (LOCK) {
+			folder.mkdirs();
+			// the entry is complete or missing, never half copied
+			File tmp = new File(folder, key + ".tmp");
+			delete(tmp);
+			tmp.mkdirs();
+			for (File file : getExportFiles(output)) {
+				Files.copy(file.toPath(), new File(tmp, file.getName()).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			Properties props = new Properties();
+			props.setProperty(OUTPUT, output.getName());
+			props.setProperty(USED, Long.toString(System.currentTimeMillis()));
+			writeEntry(tmp, props);
+
+			File entry = new File(folder, key);
+			delete(entry);
+			Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			evict(key);
+
+			return new File(entry, output.getName());
+		}
+	}
+
+	/**
+	 * @return the ontology and the files written with it, they share its
+	 *         name before the extension
+	 */
+	private List<File> getExportFiles(File output) {
+		String name = output.getName();
+		int dot = name.indexOf('.');
+		String base = dot != -1 ? name.substring(0, dot) : name;
+		File[] files = output.getAbsoluteFile().getParentFile().listFiles();
+		List<File> exportFiles = new ArrayList<File>();
+		for (File file : files) {
+			String fileName = file.getName();
+			if (file.isFile() && !fileName.endsWith(".tmp")
+					&& (fileName.startsWith(base + ".") || fileName.startsWith(base + "_"))) {
+				exportFiles.add(file);
+			}
+		}
+
+		return exportFiles;
+	}
+
+	/**
+	 * Removes the entry of the key, the next export of the same key is made
+	 * again
+	 */
+	public void invalidate(String key) throws IOException {
+		synchronized (LOCK) {
+			delete(new File(folder, key));
+		}
+	}
+
+	/**
+	 * Removes every entry
+	 */
+	public void clear() throws IOException {
+		synchronized (LOCK) {
+			for (File entry : getEntries()) {
+				delete(entry);
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries used least recently until the cache fits its size,
+	 * the entry just stored is kept even if it alone does not fit
+	 */
+	private void evict(String keep) throws IOException {
+		List<File> entries = getEntries();
+		final Map<File, Long> used = new TreeMap<File, Long>();
+		long size = 0;
+		for (File entry : entries) {
+			Properties props = readEntry(entry);
+			used.put(entry, props != null ? Long.parseLong(props.getProperty(USED, "0")) : 0L);
+			size += getSize(entry);
+		}
+		Collections.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(used.get(a), used.get(b));
+			}
+		});
+
+		for (File entry : entries) {
+			if (size <= maxSize) {
+				break;
+			}
+			if (!entry.getName().equals(keep)) {
+				size -= getSize(entry);
+				delete(entry);
+			}
+		}
+	}
+
+	private List<File> getEntries() {
+		List<File> entries = new ArrayList<File>();
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory() && !file.getName().endsWith(".tmp")) {
+					entries.add(file);
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	private long getSize(File entry) {
+		long size = 0;
+		File[] files = entry.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				size += file.length();
+			}
+		}
+
+		return size;
+	}
+
+	private Properties readEntry(File entry) throws IOException {
+		File file = new File(entry, ENTRY);
+		if (!file.exists()) {
+			return null;
+		}
+
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+
+		return props;
+	}
+
+	private void writeEntry(File entry, Properties props) throws IOException {
+		try (OutputStream out = new FileOutputStream(new File(entry, ENTRY))) {
+			props.store(out, "OCEAN export cache entry");
+		}
+	}
+
+	private void delete(File entry) throws IOException {
+		File[] files = entry.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Files.delete(file.toPath());
+			}
+		}
+		Files.deleteIfExists(entry.toPath());
+	}
+
+}
@@ -0,0 +1,365 @@
+package br.org.ocean.exporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.repositoryminer.model.Commit;
+
+/**
+ * Where the last export of a repository (and reference) stopped: the newest
+ * commit visited, the ontology it was written to and the committers already
+ * added to that ontology. Exports that take checkpoints store a partial one
+ * every few commits, an export stopped half way resumes from it. The ids of
+ * the commits visited are appended to a file of their own, one per line, so a
+ * checkpoint writes only the ones visited since the previous
+ */
+public class ExportCheckpoint {
+	private static final String OUTPUT = "output";
+	private static final String LAST_DATE = "last.date";
+	private static final String LAST_COMMITS = "last.commits";
+	private static final String COMMITS_LENGTH = "commits.length";
+	private static final String COMMITTER = "committer.";
+	private static final String SHARDS = "shards";
+	private static final String SMELL = "smell.";
+	private static final String FILE = "file.";
+	private static final String PARTIAL = "partial";
+	private static final String OUTPUT_LENGTH = "output.length";
+
+	private File file;
+	private String outputPath;
+	// newest commit date and all commits seen with that date, commits of the
+	// same second are told apart by their ids
+	private Date lastDate;
+	private Set<String> lastCommits = new HashSet<String>();
+	// every commit visited, null for checkpoints stored before they were kept
+	private Set<String> commits = new HashSet<String>();
+	// visited since the last store, and the bytes of the commits file stored
+	// so far, the bytes after them were not made durable by a checkpoint
+	private List<String> newCommits = new ArrayList<String>();
+	private long commitsLength;
+	private Set<String> committers = new HashSet<String>();
+	private int shards;
+	private Map<String, String> smells = new HashMap<String, String>();
+	private Map<String, Long> files = new HashMap<String, Long>();
+	private boolean partial;
+	private long outputLength;
+
+	public ExportCheckpoint(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return the checkpoint stored in the file or an empty checkpoint if
+	 *         there is no such file
+	 */
+	public static ExportCheckpoint load(File file) throws IOException {
+		ExportCheckpoint checkpoint = new ExportCheckpoint(file);
+		if (!file.exists()) {
+			return checkpoint;
+		}
+
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		checkpoint.outputPath = props.getProperty(OUTPUT);
+		if (props.containsKey(LAST_DATE)) {
+			checkpoint.lastDate = new Date(Long.parseLong(props.getProperty(LAST_DATE)));
+		}
+		checkpoint.lastCommits = split(props.getProperty(LAST_COMMITS, ""));
+		if (props.containsKey(COMMITS_LENGTH)) {
+			checkpoint.commitsLength = Long.parseLong(props.getProperty(COMMITS_LENGTH));
+			checkpoint.commits = checkpoint.loadCommits();
+		} else if (checkpoint.lastDate != null) {
+			checkpoint.commits = null;
+		}
+		checkpoint.shards = Integer.parseInt(props.getProperty(SHARDS, "0"));
+		checkpoint.partial = Boolean.parseBoolean(props.getProperty(PARTIAL, "false"));
+		checkpoint.outputLength = Long.parseLong(props.getProperty(OUTPUT_LENGTH, "0"));
+		for (String key : props.stringPropertyNames()) {
+			if (key.startsWith(COMMITTER)) {
+				checkpoint.committers.add(key.substring(COMMITTER.length()));
+			} else if (key.startsWith(SMELL)) {
+				checkpoint.smells.put(key.substring(SMELL.length()), props.getProperty(key));
+			} else if (key.startsWith(FILE)) {
+				checkpoint.files.put(key.substring(FILE.length()), Long.valueOf(props.getProperty(key)));
+			}
+		}
+
+		return checkpoint;
+	}
+
+	public void store() throws IOException {
+		Properties props = new Properties();
+		if (outputPath != null) {
+			props.setProperty(OUTPUT, outputPath);
+		}
+		if (lastDate != null) {
+			props.setProperty(LAST_DATE, Long.toString(lastDate.getTime()));
+		}
+		props.setProperty(LAST_COMMITS, join(lastCommits));
+		if (commits != null) {
+			storeCommits();
+			props.setProperty(COMMITS_LENGTH, Long.toString(commitsLength));
+		}
+		for (String committer : committers) {
+			props.setProperty(COMMITTER + committer, "");
+		}
+		props.setProperty(SHARDS, Integer.toString(shards));
+		props.setProperty(PARTIAL, Boolean.toString(partial));
+		props.setProperty(OUTPUT_LENGTH, Long.toString(outputLength));
+		for (Map.Entry<String, String> smell : smells.entrySet()) {
+			props.setProperty(SMELL + smell.getKey(), smell.getValue());
+		}
+		for (Map.Entry<String, Long> file : files.entrySet()) {
+			props.setProperty(FILE + file.getKey(), file.getValue().toString());
+		}
+		// replacing the previous checkpoint only when the new one is complete
+		File tmp = new File(file.getPath() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)) {
+			props.store(out, "OCEAN export checkpoint");
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private File getCommitsFile() {
+		return new File(file.getPath() + ".commits");
+	}
+
+	private Set<String> loadCommits() throws IOException {
+		Set<String> commits = new HashSet<String>();
+		long length = 0;
+		try (BufferedReader reader = Files.newBufferedReader(getCommitsFile().toPath(), StandardCharsets.US_ASCII)) {
+			String line;
+			while ((length < commitsLength) && ((line = reader.readLine()) != null)) {
+				commits.add(line);
+				length += line.length() + 1;
+			}
+		}
+		if (length != commitsLength) {
+			throw new IOException("the commits file of " + file + " is shorter than its checkpoint");
+		}
+
+		return commits;
+	}
+
+	/**
+	 * Appends the commits visited since the last store to the commits file,
+	 * dropping what a stopped export appended after its checkpoint, and syncs
+	 * it before the checkpoint that counts them replaces the previous one
+	 */
+	private void storeCommits() throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (String commit : newCommits) {
+			lines.append(commit).append('\n');
+		}
+		try (FileChannel channel = FileChannel.open(getCommitsFile().toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE)) {
+			channel.truncate(commitsLength);
+			ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+			channel.position(commitsLength);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+			commitsLength = channel.size();
+		}
+		newCommits.clear();
+	}
+
+	/**
+	 * @return a checkpoint with the same contents that does not change when
+	 *         this one does
+	 */
+	public ExportCheckpoint copy() {
+		ExportCheckpoint copy = new ExportCheckpoint(file);
+		copy.outputPath = outputPath;
+		copy.lastDate = lastDate;
+		copy.lastCommits = new HashSet<String>(lastCommits);
+		copy.commits = commits != null ? new HashSet<String>(commits) : null;
+		copy.newCommits = new ArrayList<String>(newCommits);
+		copy.commitsLength = commitsLength;
+		copy.committers = new HashSet<String>(committers);
+		copy.shards = shards;
+		copy.smells = new HashMap<String, String>(smells);
+		copy.files = new HashMap<String, Long>(files);
+		copy.partial = partial;
+		copy.outputLength = outputLength;
+
+		return copy;
+	}
+
+	public void commitVisited(Commit commit) {
+		Date date = commit.getCommitDate();
+		if ((lastDate == null) || date.after(lastDate)) {
+			lastDate = date;
+			lastCommits.clear();
+		}
+		if (date.equals(lastDate)) {
+			lastCommits.add(commit.getId());
+		}
+		if ((commits != null) && commits.add(commit.getId())) {
+			newCommits.add(commit.getId());
+		}
+	}
+
+	/**
+	 * @return true if the commit was visited by the export that stored the
+	 *         checkpoint, told by its id, so commits mined after the export
+	 *         with older dates are not taken for visited
+	 */
+	public boolean wasVisited(Commit commit) {
+		if (commits != null) {
+			return commits.contains(commit.getId());
+		}
+
+		return commit.getCommitDate().equals(lastDate) && lastCommits.contains(commit.getId());
+	}
+
+	/**
+	 * @return how many commits were visited, -1 if the checkpoint does not
+	 *         know
+	 */
+	public int getVisitedCommits() {
+		return commits != null ? commits.size() : -1;
+	}
+
+	/**
+	 * @return how many of the visited commits are as new as the last one
+	 */
+	public int getLastCommits() {
+		return lastCommits.size();
+	}
+
+	private static Set<String> split(String values) {
+		Set<String> set = new HashSet<String>();
+		for (String value : values.split(",")) {
+			if (!value.isEmpty()) {
+				set.add(value);
+			}
+		}
+
+		return set;
+	}
+
+	private static String join(Set<String> values) {
+		StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			if (joined.length() > 0) {
+				joined.append(',');
+			}
+			joined.append(value);
+		}
+
+		return joined.toString();
+	}
+
+	public boolean isEmpty() {
+		return lastDate == null;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public String getOutputPath() {
+		return outputPath;
+	}
+
+	public void setOutputPath(String outputPath) {
+		this.outputPath = outputPath;
+	}
+
+	public Date getLastDate() {
+		return lastDate;
+	}
+
+	public Set<String> getCommitters() {
+		return committers;
+	}
+
+	public void setCommitters(Collection<String> committers) {
+		this.committers = new HashSet<String>(committers);
+	}
+
+	/**
+	 * @return how many shards a sharded export has written so far
+	 */
+	public int getShards() {
+		return shards;
+	}
+
+	public void setShards(int shards) {
+		this.shards = shards;
+	}
+
+	/**
+	 * @return the smells alive when the export stopped, see
+	 *         {@link SmellLifecycle#getState}
+	 */
+	public Map<String, String> getSmells() {
+		return smells;
+	}
+
+	public void setSmells(Map<String, String> smells) {
+		this.smells = new HashMap<String, String>(smells);
+	}
+
+	/**
+	 * @return the files of the classes with smells alive, see
+	 *         {@link SmellLifecycle#getFiles}
+	 */
+	public Map<String, Long> getFiles() {
+		return files;
+	}
+
+	public void setFiles(Map<String, Long> files) {
+		this.files = new HashMap<String, Long>(files);
+	}
+
+	/**
+	 * @return true if the export that stored the checkpoint had not ended
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	public void setPartial(boolean partial) {
+		this.partial = partial;
+	}
+
+	/**
+	 * @return how many bytes of a streamed ontology were written up to the
+	 *         checkpoint, 0 if unknown, the bytes after them are written
+	 *         again when the export resumes
+	 */
+	public long getOutputLength() {
+		return outputLength;
+	}
+
+	public void setOutputLength(long outputLength) {
+		this.outputLength = outputLength;
+	}
+
+}
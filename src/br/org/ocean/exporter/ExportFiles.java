@@ -0,0 +1,70 @@
+package br.org.ocean.exporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens exported files in the format and compression of the settings, every
+ * write goes through a buffer to a file channel
+ */
+public class ExportFiles {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private ExportFiles() {
+	}
+
+	/**
+	 * @param append
+	 *            true to write after the end of the file, gzip and binary
+	 *            files then get a new member/header that readers handle
+	 */
+	public static OutputStream openOutput(File file, boolean append, ExportSettings settings) throws IOException {
+		FileChannel channel;
+		if (append) {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		} else {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		OutputStream out = Channels.newOutputStream(channel);
+		if (settings.isGzip()) {
+			out = new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+		out = new BufferedOutputStream(out, BUFFER_SIZE);
+		if (settings.getFormat() == OutputFormat.BINARY) {
+			out = new BinaryRdfOutputStream(out);
+		}
+
+		return out;
+	}
+
+	/**
+	 * @return the file as the OWL API can parse it, binary files are decoded
+	 *         back to N-Triples while they are read
+	 */
+	public static InputStream openInput(File file, ExportSettings settings) throws IOException {
+		InputStream in = new BufferedInputStream(
+				Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ)), BUFFER_SIZE);
+		if (settings.isGzip()) {
+			in = new GZIPInputStream(in, BUFFER_SIZE);
+		}
+		if (settings.getFormat() == OutputFormat.BINARY) {
+			in = new BinaryRdfReader(in).toInputStream();
+		}
+
+		return in;
+	}
+
+}
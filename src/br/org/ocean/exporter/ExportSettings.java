@@ -0,0 +1,336 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Exporter settings read from the properties given to
+ * {@link OntoExporter#init}, all of them are optional
+ */
+public class ExportSettings {
+
+	public static final String STREAMING = "export.streaming";
+	public static final String BATCH_SIZE = "export.batch.size";
+	public static final String THREADS = "export.threads";
+	public static final String FLUSH_COMMITS = "export.flush.commits";
+	public static final String IDS = "export.ids";
+	public static final String INCREMENTAL = "export.incremental";
+	public static final String FORMAT = "export.format";
+	public static final String COMPRESSION = "export.compression";
+	public static final String SHARD = "export.shard";
+	public static final String SHARD_SIZE = "export.shard.size";
+	public static final String QUERY = "export.query";
+	public static final String SOURCE = "export.source";
+	public static final String PREFETCH = "export.prefetch";
+	public static final String PREFETCH_THREADS = "export.prefetch.threads";
+	public static final String SMELLS = "export.smells";
+	public static final String METRICS = "export.metrics";
+	public static final String COLUMNS = "export.columns";
+	public static final String AGGREGATES = "export.aggregates";
+	public static final String AGGREGATES_AXIOMS = "export.aggregates.axioms";
+	public static final String CACHE = "export.cache";
+	public static final String CACHE_SIZE = "export.cache.size";
+	public static final String CACHE_INVALIDATE = "export.cache.invalidate";
+	public static final String CHECKPOINT_COMMITS = "export.checkpoint.commits";
+
+	// aggregators that export.aggregates can name
+	private static final List<String> AGGREGATORS = Arrays.asList("committers", "classes", "smells");
+
+	private boolean streaming;
+	private int batchSize;
+	private int threads;
+	private int flushCommits;
+	private boolean contentIds;
+	private boolean incremental;
+	private OutputFormat format;
+	private boolean gzip;
+	private ShardPolicy shard;
+	private int shardSize;
+	private boolean aggregateQuery;
+	private boolean minerSource;
+	private int prefetch;
+	private int prefetchThreads;
+	private boolean smellChanges;
+	private boolean compactMetrics;
+	private boolean columns;
+	private List<String> aggregates = new ArrayList<String>();
+	private boolean aggregatesAxioms;
+	private boolean cache;
+	private long cacheSize;
+	private boolean cacheInvalidate;
+	private int checkpointCommits;
+
+	public ExportSettings(Properties properties) {
+		streaming = Boolean.parseBoolean(properties.getProperty(STREAMING, "false"));
+		batchSize = Math.max(1, Integer.parseInt(properties.getProperty(BATCH_SIZE, "500")));
+		threads = Math.max(1, Integer.parseInt(properties.getProperty(THREADS, "1")));
+		flushCommits = Math.max(1, Integer.parseInt(properties.getProperty(FLUSH_COMMITS, "100")));
+		contentIds = "content".equals(properties.getProperty(IDS, "random"));
+		incremental = Boolean.parseBoolean(properties.getProperty(INCREMENTAL, "false"));
+		String formatName = properties.getProperty(FORMAT, "").trim();
+		if (formatName.isEmpty()) {
+			formatName = streaming ? "ntriples" : "owl";
+		}
+		format = OutputFormat.valueOf(formatName.toUpperCase());
+		if (streaming && !format.isStreamable()) {
+			throw new IllegalArgumentException(FORMAT + "=" + format.name().toLowerCase() + " can not be streamed");
+		}
+		gzip = "gzip".equals(properties.getProperty(COMPRESSION, "none").trim());
+		shard = ShardPolicy.valueOf(properties.getProperty(SHARD, "none").trim().toUpperCase());
+		if (streaming && (shard != ShardPolicy.NONE)) {
+			throw new IllegalArgumentException(SHARD + " is not supported by streaming exports");
+		}
+		shardSize = Math.max(1, Integer.parseInt(properties.getProperty(SHARD_SIZE, "10000")));
+		aggregateQuery = "aggregate".equals(properties.getProperty(QUERY, "find").trim());
+		minerSource = "miner".equals(properties.getProperty(SOURCE, "database").trim());
+		// commits come in the order they are analysed
+		if (minerSource && (shard == ShardPolicy.MONTH)) {
+			throw new IllegalArgumentException(SHARD + "=month is not supported by " + SOURCE + "=miner");
+		}
+		prefetch = Math.max(0, Integer.parseInt(properties.getProperty(PREFETCH, "0")));
+		prefetchThreads = Math.max(1, Integer.parseInt(properties.getProperty(PREFETCH_THREADS, "1")));
+		smellChanges = "changes".equals(properties.getProperty(SMELLS, "all").trim());
+		// the aggregation leaves out the classes that lost their smells
+		if (smellChanges && aggregateQuery) {
+			throw new IllegalArgumentException(SMELLS + "=changes is not supported by " + QUERY + "=aggregate");
+		}
+		compactMetrics = "compact".equals(properties.getProperty(METRICS, "verbose").trim());
+		columns = Boolean.parseBoolean(properties.getProperty(COLUMNS, "false"));
+		for (String name : properties.getProperty(AGGREGATES, "").split(",")) {
+			name = name.trim();
+			if (name.isEmpty()) {
+				continue;
+			}
+			if (!AGGREGATORS.contains(name)) {
+				throw new IllegalArgumentException(AGGREGATES + " must name some of " + AGGREGATORS);
+			}
+			aggregates.add(name);
+		}
+		aggregatesAxioms = Boolean.parseBoolean(properties.getProperty(AGGREGATES_AXIOMS, "false"));
+		cache = Boolean.parseBoolean(properties.getProperty(CACHE, "false"));
+		cacheSize = Math.max(0, Long.parseLong(properties.getProperty(CACHE_SIZE, "1073741824").trim()));
+		cacheInvalidate = Boolean.parseBoolean(properties.getProperty(CACHE_INVALIDATE, "false"));
+		checkpointCommits = Math.max(0, Integer.parseInt(properties.getProperty(CHECKPOINT_COMMITS, "0").trim()));
+		// a stopped export would mine again, commits come in the order they are analysed
+		if (minerSource && (checkpointCommits > 0)) {
+			throw new IllegalArgumentException(CHECKPOINT_COMMITS + " is not supported by " + SOURCE + "=miner");
+		}
+		// every checkpoint would save the whole ontology again
+		if ((checkpointCommits > 0) && !streaming && (shard == ShardPolicy.NONE)) {
+			throw new IllegalArgumentException(CHECKPOINT_COMMITS + " needs " + STREAMING + "=true or " + SHARD);
+		}
+		// the aggregators of a resumed export would miss the commits before it
+		if ((checkpointCommits > 0) && !aggregates.isEmpty()) {
+			throw new IllegalArgumentException(CHECKPOINT_COMMITS + " is not supported by " + AGGREGATES);
+		}
+	}
+
+	/**
+	 * @return true if axioms must be written to the output file as soon as
+	 *         they are created instead of being kept in memory until the
+	 *         whole repository is exported
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * @return how many commits are read from the database, and have their
+	 *         code analysis fetched, at once
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return how many threads build the axioms of the commits, a single
+	 *         thread means a sequential export
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return after how many exported commits their axioms are handed to the
+	 *         ontology (or output file) at once
+	 */
+	public int getFlushCommits() {
+		return flushCommits;
+	}
+
+	/**
+	 * @return true if individuals are named after a hash of their content
+	 *         (export.ids=content) instead of a random id
+	 *         (export.ids=random)
+	 */
+	public boolean isContentIds() {
+		return contentIds;
+	}
+
+	/**
+	 * @return true if only the commits newer than the last export of the
+	 *         same repository and reference must be exported, and added to
+	 *         the ontology written by that export
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * @return the syntax of the exported file (export.format), owl by
+	 *         default, or ntriples when streaming
+	 */
+	public OutputFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return true if the exported file is gzip compressed
+	 *         (export.compression=gzip)
+	 */
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	/**
+	 * @return the extension of the exported file, after its format and
+	 *         compression
+	 */
+	public String getExtension() {
+		return format.getExtension() + (gzip ? ".gz" : "");
+	}
+
+	/**
+	 * @return how commits are split among shard ontologies imported by a
+	 *         small index ontology, NONE by default
+	 */
+	public ShardPolicy getShard() {
+		return shard;
+	}
+
+	/**
+	 * @return how many commits a shard has at most when sharding by commits
+	 */
+	public int getShardSize() {
+		return shardSize;
+	}
+
+	/**
+	 * @return true if the database must join commits with their code analysis
+	 *         and bring only the commits that produced smells
+	 *         (export.query=aggregate) instead of every commit being fetched
+	 *         and checked (export.query=find)
+	 */
+	public boolean isAggregateQuery() {
+		return aggregateQuery;
+	}
+
+	/**
+	 * @return true if smells must be taken from the miner while it mines
+	 *         (export.source=miner) instead of being read from the database
+	 *         once it is done (export.source=database)
+	 */
+	public boolean isMinerSource() {
+		return minerSource;
+	}
+
+	/**
+	 * @return how many batches of commits, with their code analysis, can be
+	 *         read ahead of the export, 0 means no batch is read before the
+	 *         previous one is exported
+	 */
+	public int getPrefetch() {
+		return prefetch;
+	}
+
+	/**
+	 * @return how many threads fetch the code analysis of the batches read
+	 *         ahead
+	 */
+	public int getPrefetchThreads() {
+		return prefetchThreads;
+	}
+
+	/**
+	 * @return true if a smell must be added only by the commit where it
+	 *         appears, and linked to the commit where it disappears
+	 *         (export.smells=changes), instead of being added again by every
+	 *         commit that finds it (export.smells=all)
+	 */
+	public boolean isSmellChanges() {
+		return smellChanges;
+	}
+
+	/**
+	 * @return true if every metric of a smell must be a data property of the
+	 *         smell (export.metrics=compact), declared by ocean-compact.owl,
+	 *         instead of an individual of its own (export.metrics=verbose)
+	 */
+	public boolean isCompactMetrics() {
+		return compactMetrics;
+	}
+
+	/**
+	 * @return true if the smells of the export must also be written in
+	 *         columns next to the ontology (see {@link SmellColumns})
+	 */
+	public boolean isColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the names of the aggregators whose reports are written next to
+	 *         the ontology (export.aggregates, some of committers, classes and
+	 *         smells separated by commas), none by default. The reports of an
+	 *         incremental export cover only the commits it added
+	 */
+	public List<String> getAggregates() {
+		return aggregates;
+	}
+
+	/**
+	 * @return true if the aggregators must also add their summary to the
+	 *         ontology, only exports that are not appended to a previous one
+	 *         do it
+	 */
+	public boolean isAggregatesAxioms() {
+		return aggregatesAxioms;
+	}
+
+	/**
+	 * @return true if exports must be kept in an {@link ExportCache} and
+	 *         taken from it when asked again with nothing changed
+	 */
+	public boolean isCache() {
+		return cache;
+	}
+
+	/**
+	 * @return how many bytes the cached exports can take at most, 1 GiB by
+	 *         default
+	 */
+	public long getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * @return true if the cached export must be dropped and made again
+	 *         (export.cache.invalidate=true)
+	 */
+	public boolean isCacheInvalidate() {
+		return cacheInvalidate;
+	}
+
+	/**
+	 * @return how many commits are visited between two checkpoints of an
+	 *         export, 0 (the default) if only incremental exports store a
+	 *         checkpoint, when they end. Only streaming and sharded exports,
+	 *         without aggregates, take checkpoints
+	 */
+	public int getCheckpointCommits() {
+		return checkpointCommits;
+	}
+
+}
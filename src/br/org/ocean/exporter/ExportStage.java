@@ -0,0 +1,38 @@
+package br.org.ocean.exporter;
+
+/**
+ * Stages timed by {@link ExportStatistics}, streaming exports write axioms as
+ * they are built so their serialization is mostly part of
+ * {@link #BUILD_AXIOMS}
+ */
+public enum ExportStage {
+
+	FETCH_COMMITS("fetch commits", "commits"),
+	FETCH_ANALYSIS("fetch analysis", "commits"),
+	PARSE_SMELLS("parse smells", "smells"),
+	BUILD_AXIOMS("build axioms", "commits"),
+	AGGREGATE("aggregate", "commits"),
+	SERIALIZE("serialize", "axioms"),
+	WRITE_COLUMNS("write columns", "smells"),
+	CHECKPOINT("checkpoint", "checkpoints");
+
+	private String label;
+	private String unit;
+
+	private ExportStage(String label, String unit) {
+		this.label = label;
+		this.unit = unit;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return what the count of the stage is made of
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+}
@@ -0,0 +1,145 @@
+package br.org.ocean.exporter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+import br.org.ocean.ILogger;
+
+/**
+ * Time and counts of every stage of an export, stages may be timed by many
+ * threads at once while axioms and commits are counted by the exporting
+ * thread only, each stage is also recorded as a JFR event when the JVM has JFR
+ */
+public class ExportStatistics {
+
+	private LongAdder[] nanos = new LongAdder[ExportStage.values().length];
+	private LongAdder[] counts = new LongAdder[ExportStage.values().length];
+	private Map<AxiomType<?>, Long> axiomsByType = new HashMap<AxiomType<?>, Long>();
+	private long axioms;
+	private int commits;
+	private int exportedCommits;
+
+	private long startTime;
+	private long endTime;
+	private Object exportEvent;
+
+	public ExportStatistics() {
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] = new LongAdder();
+			counts[i] = new LongAdder();
+		}
+		exportEvent = JfrEvents.beginExport();
+		startTime = System.nanoTime();
+	}
+
+	public Timer start(ExportStage stage) {
+		return new Timer(stage);
+	}
+
+	/**
+	 * Measures one run of a stage
+	 */
+	public class Timer {
+		private ExportStage stage;
+		private Object event;
+		private long start;
+
+		private Timer(ExportStage stage) {
+			this.stage = stage;
+			event = JfrEvents.beginStage();
+			start = System.nanoTime();
+		}
+
+		public void stop(long count) {
+			nanos[stage.ordinal()].add(System.nanoTime() - start);
+			counts[stage.ordinal()].add(count);
+			JfrEvents.commitStage(event, stage, count);
+		}
+	}
+
+	void axiomAdded(OWLAxiom axiom) {
+		AxiomType<?> type = axiom.getAxiomType();
+		Long count = axiomsByType.get(type);
+		axiomsByType.put(type, count == null ? 1 : count + 1);
+		axioms++;
+	}
+
+	void commitsVisited(int count) {
+		commits += count;
+	}
+
+	void commitExported() {
+		exportedCommits++;
+	}
+
+	/**
+	 * Stops the clock of the whole export
+	 */
+	public void finish() {
+		endTime = System.nanoTime();
+		JfrEvents.commitExport(exportEvent, commits, exportedCommits, axioms, getCommitsPerSecond());
+	}
+
+	public long getNanos(ExportStage stage) {
+		return nanos[stage.ordinal()].sum();
+	}
+
+	public long getCount(ExportStage stage) {
+		return counts[stage.ordinal()].sum();
+	}
+
+	public Map<AxiomType<?>, Long> getAxiomsByType() {
+		return Collections.unmodifiableMap(axiomsByType);
+	}
+
+	public long getAxioms() {
+		return axioms;
+	}
+
+	/**
+	 * @return commits visited, with smells or not
+	 */
+	public int getCommits() {
+		return commits;
+	}
+
+	/**
+	 * @return commits with smells, the only ones in the ontology
+	 */
+	public int getExportedCommits() {
+		return exportedCommits;
+	}
+
+	public long getElapsedNanos() {
+		return (endTime != 0 ? endTime : System.nanoTime()) - startTime;
+	}
+
+	public double getCommitsPerSecond() {
+		return commits / Math.max(getElapsedNanos() / 1e9, 1e-9);
+	}
+
+	public void report(ILogger logger) {
+		logger.log(String.format("exported %d commits (%d with smells) in %.1f s, %.1f commits/s", commits,
+				exportedCommits, getElapsedNanos() / 1e9, getCommitsPerSecond()));
+		for (ExportStage stage : ExportStage.values()) {
+			logger.log(String.format("  %s: %.1f s, %d %s", stage.getLabel(), getNanos(stage) / 1e9, getCount(stage),
+					stage.getUnit()));
+		}
+		logger.log("  axioms: " + axioms + " " + formatAxiomsByType());
+	}
+
+	private String formatAxiomsByType() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<AxiomType<?>, Long> entry : axiomsByType.entrySet()) {
+			sb.append(sb.length() == 0 ? "(" : ", ").append(entry.getKey()).append(" ").append(entry.getValue());
+		}
+
+		return sb.length() == 0 ? "" : sb.append(")").toString();
+	}
+
+}
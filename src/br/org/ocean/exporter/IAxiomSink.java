@@ -0,0 +1,15 @@
+package br.org.ocean.exporter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.Collection;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+public interface IAxiomSink extends Closeable, Flushable {
+
+	public void addAxiom(OWLAxiom axiom);
+
+	public void addAxioms(Collection<OWLAxiom> axioms);
+
+}
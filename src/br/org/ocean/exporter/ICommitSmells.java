@@ -0,0 +1,26 @@
+package br.org.ocean.exporter;
+
+import java.util.List;
+import java.util.Map;
+
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+
+/**
+ * Smells of a batch of commits
+ */
+public interface ICommitSmells {
+
+	/**
+	 * @return the smells found in the classes changed by the commit, by class
+	 *         name, empty if the commit produced no smells
+	 */
+	public Map<String, List<CodeSmell>> getSmells(Commit commit);
+
+	/**
+	 * @return the classes analysed by the commit, with or without smells, by
+	 *         name, with the hash of their file path as the miner computes it
+	 */
+	public Map<String, Long> getClassFiles(Commit commit);
+
+}
@@ -0,0 +1,24 @@
+package br.org.ocean.exporter;
+
+/**
+ * Records the events of exports, implemented with JFR out of the main
+ * sources (jfr/src) as the exporter is built for Java 8
+ */
+interface IEventRecorder {
+
+	/**
+	 * @return the event of a stage, begun
+	 */
+	public Object beginStage();
+
+	public void commitStage(Object stageEvent, ExportStage stage, long count);
+
+	/**
+	 * @return the event of a whole export, begun
+	 */
+	public Object beginExport();
+
+	public void commitExport(Object exportEvent, int commits, int exportedCommits, long axioms,
+			double commitsPerSecond);
+
+}
@@ -0,0 +1,26 @@
+package br.org.ocean.exporter;
+
+import org.repositoryminer.model.Repository;
+
+/**
+ * Names the individuals (and the output file) that have no natural id
+ */
+public interface IIdStrategy {
+
+	/**
+	 * @param reference
+	 *            the exported tag/branch, null for the whole repository
+	 */
+	public String getExportId(Repository repository, String reference);
+
+	public String getRepositoryId(Repository repository);
+
+	/**
+	 * @param signature
+	 *            of the smelly method, null for class smells
+	 */
+	public String getSmellId(String commitId, String clazzName, String smellLabel, String signature);
+
+	public String getMetricId(String metricName, double value);
+
+}
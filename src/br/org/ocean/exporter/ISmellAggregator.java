@@ -0,0 +1,51 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVPrinter;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+
+/**
+ * Summary of the smells updated while commits are exported, so it needs no
+ * other pass over the data. Commits are handed over by a single thread in
+ * the order they are exported
+ */
+public interface ISmellAggregator {
+
+	/**
+	 * @return names the report of the aggregator
+	 */
+	public String getName();
+
+	/**
+	 * @param committer
+	 *            the committer as named in the ontology
+	 * @param smells
+	 *            every smell found by the commit, by class, may be empty
+	 * @param changes
+	 *            the smells introduced and removed by the commit, null unless
+	 *            exporting changes
+	 */
+	public void addCommit(Commit commit, String committer, Map<String, List<CodeSmell>> smells,
+			SmellChanges changes);
+
+	/**
+	 * @return the columns of the report
+	 */
+	public String[] getHeader();
+
+	/**
+	 * Prints a record for every row of the report
+	 */
+	public void printRecords(CSVPrinter printer) throws IOException;
+
+	/**
+	 * Adds the summary to the ontology, if it has anything to say about its
+	 * individuals
+	 */
+	public void addAxioms(AxiomBuilder builder);
+
+}
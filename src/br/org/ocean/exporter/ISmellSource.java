@@ -0,0 +1,38 @@
+package br.org.ocean.exporter;
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Repository;
+
+/**
+ * Where the exporter gets commits and their smells from
+ */
+public interface ISmellSource extends Closeable {
+
+	/**
+	 * @return how many commits of the repository were committed at or after
+	 *         since (all of them if since is null)
+	 */
+	public long countCommits(Repository repository, Date since);
+
+	/**
+	 * @return the commits counted by {@link #countCommits}, from the oldest to
+	 *         the newest, they are released when the source is closed
+	 */
+	public Iterator<Commit> findCommits(Repository repository, Date since, int batchSize);
+
+	/**
+	 * @return the smells of commits found by {@link #findCommits}, it may be
+	 *         called by threads other than the one reading the commits, while
+	 *         they go on being read
+	 */
+	public ICommitSmells findSmells(List<Commit> commits);
+
+	@Override
+	public void close();
+
+}
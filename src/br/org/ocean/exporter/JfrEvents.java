@@ -0,0 +1,45 @@
+package br.org.ocean.exporter;
+
+/**
+ * Records export events with JFR when the JVM has it (JDK 11+, 8u262+) and
+ * the events were built (jfr/src, only by JDK 11+), the recorder is loaded
+ * by name only then, elsewhere nothing is recorded
+ */
+final class JfrEvents {
+
+	private static final IEventRecorder RECORDER = createRecorder();
+
+	private JfrEvents() {
+	}
+
+	private static IEventRecorder createRecorder() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (IEventRecorder) Class.forName("br.org.ocean.exporter.JfrEventRecorder").newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	static Object beginStage() {
+		return RECORDER != null ? RECORDER.beginStage() : null;
+	}
+
+	static void commitStage(Object stageEvent, ExportStage stage, long count) {
+		if (stageEvent != null) {
+			RECORDER.commitStage(stageEvent, stage, count);
+		}
+	}
+
+	static Object beginExport() {
+		return RECORDER != null ? RECORDER.beginExport() : null;
+	}
+
+	static void commitExport(Object exportEvent, int commits, int exportedCommits, long axioms,
+			double commitsPerSecond) {
+		if (exportEvent != null) {
+			RECORDER.commitExport(exportEvent, commits, exportedCommits, axioms, commitsPerSecond);
+		}
+	}
+
+}
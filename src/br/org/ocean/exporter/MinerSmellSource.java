@@ -0,0 +1,302 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.bson.Document;
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractClassDeclaration;
+import org.repositoryminer.codesmell.CodeSmellId;
+import org.repositoryminer.codesmell.direct.IDirectCodeSmell;
+import org.repositoryminer.listener.mining.MultiMiningListener;
+import org.repositoryminer.listener.mining.NullMiningListener;
+import org.repositoryminer.mining.RepositoryMiner;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Repository;
+import org.repositoryminer.utility.StringUtils;
+
+import br.org.ocean.persistence.CommitCursorHandler;
+
+/**
+ * Smells taken from the detectors of a miner while it analyses the commits
+ * (export.source=miner), so the export runs alongside the mining and the
+ * code analysis is never read back from the database. Every commit analysed
+ * is handed to the exporter, in the order they were analysed, as soon as its
+ * analysis is over, even without smells it may remove some and it counts in
+ * the progress of the export. The miner analyses only the commits it has not
+ * seen, so a repository mined before gives only its new commits
+ */
+public class MinerSmellSource implements ISmellSource {
+
+	// marks the end of the analysis in the queue of analysed commits
+	private static final String END = "";
+
+	private CommitCursorHandler commitHandler = new CommitCursorHandler();
+	// smells of every class, and classes analysed, by commit, until the
+	// exporter asks for them
+	private Map<String, Map<String, List<Document>>> smellsByCommit = new ConcurrentHashMap<String, Map<String, List<Document>>>();
+	private Map<String, Map<String, Long>> classesByCommit = new ConcurrentHashMap<String, Map<String, Long>>();
+	private BlockingQueue<String> analysedCommits = new LinkedBlockingQueue<String>();
+	private CountDownLatch analysisStarted = new CountDownLatch(1);
+	private volatile int totalCommits;
+	private volatile Exception failure;
+
+	// written by the mining thread only
+	private String currentCommit;
+	private Map<String, List<Document>> currentSmells;
+	private Map<String, Long> currentClasses;
+
+	/**
+	 * Wraps the smell detectors and the listener of the miner, it must be
+	 * called before mining
+	 */
+	public MinerSmellSource attach(RepositoryMiner miner) {
+		List<IDirectCodeSmell> detectors = new ArrayList<IDirectCodeSmell>();
+		for (IDirectCodeSmell detector : miner.getDirectCodeSmells()) {
+			detectors.add(new CapturingCodeSmell(detector));
+		}
+		miner.setDirectCodeSmells(detectors);
+
+		MultiMiningListener listeners = new MultiMiningListener();
+		if (miner.getMiningListener() != null) {
+			listeners.addListener(miner.getMiningListener());
+		}
+		listeners.addListener(new NullMiningListener() {
+			@Override
+			public void notifyDirectCodeAnalysisStart(int commitsQtd) {
+				totalCommits = commitsQtd;
+				analysisStarted.countDown();
+			}
+
+			@Override
+			public void notifyDirectCodeAnalysisProgress(String commit, int index, int totalCommits) {
+				// the analysis of a commit is over when the next one starts
+				commitAnalysed();
+				currentCommit = commit;
+				currentSmells = new HashMap<String, List<Document>>();
+				currentClasses = new HashMap<String, Long>();
+			}
+
+			@Override
+			public void notifyDirectCodeAnalysisEnd(int totalCommits) {
+				commitAnalysed();
+			}
+		});
+		miner.setMiningListener(listeners);
+
+		return this;
+	}
+
+	private void commitAnalysed() {
+		if (currentCommit != null) {
+			smellsByCommit.put(currentCommit, currentSmells);
+			classesByCommit.put(currentCommit, currentClasses);
+			analysedCommits.add(currentCommit);
+		}
+		currentCommit = null;
+		currentSmells = null;
+		currentClasses = null;
+	}
+
+	/**
+	 * Must be called once the miner is done, even if it failed, so the
+	 * exporter does not wait for commits that will never come
+	 */
+	public void end() {
+		if (failure == null) {
+			commitAnalysed();
+		}
+		analysisStarted.countDown();
+		analysedCommits.add(END);
+	}
+
+	/**
+	 * Stops the export, it must not save the commits analysed before the
+	 * miner failed as if they were all, {@link #end()} must still be called
+	 */
+	public void fail(Exception failure) {
+		this.failure = failure;
+	}
+
+	/**
+	 * @return how many commits the miner analyses, waiting for the analysis
+	 *         to start, all of them are found
+	 */
+	@Override
+	public long countCommits(Repository repository, Date since) {
+		try {
+			analysisStarted.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		return totalCommits;
+	}
+
+	/**
+	 * @return the commits as the miner analyses them, since is ignored as
+	 *         every one of them was just mined
+	 */
+	@Override
+	public Iterator<Commit> findCommits(Repository repository, Date since, final int batchSize) {
+		return new Iterator<Commit>() {
+			private LinkedList<Commit> commits = new LinkedList<Commit>();
+			private boolean ended;
+
+			@Override
+			public boolean hasNext() {
+				while (commits.isEmpty() && !ended) {
+					fetch();
+				}
+				if (failure != null) {
+					throw new IllegalStateException("mining failed, export cancelled: " + failure.getMessage(),
+							failure);
+				}
+
+				return !commits.isEmpty();
+			}
+
+			@Override
+			public Commit next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return commits.removeFirst();
+			}
+
+			private void fetch() {
+				// waiting for a commit and taking the ones analysed meanwhile
+				List<String> ids = new ArrayList<String>(batchSize);
+				try {
+					ids.add(analysedCommits.take());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					ended = true;
+					return;
+				}
+				analysedCommits.drainTo(ids, batchSize - 1);
+				if (ids.remove(END)) {
+					ended = true;
+				}
+				if (ids.isEmpty()) {
+					return;
+				}
+
+				// the commits themselves are stored by the miner
+				Map<String, Commit> found = new HashMap<String, Commit>();
+				for (Commit commit : commitHandler.findByIds(ids)) {
+					found.put(commit.getId(), commit);
+				}
+				for (String id : ids) {
+					Commit commit = found.get(id);
+					// analysed by this mining, so not visited by a previous export
+					// whatever its date
+					if (commit != null) {
+						commits.add(commit);
+					}
+				}
+			}
+		};
+	}
+
+	@Override
+	public ICommitSmells findSmells(List<Commit> commits) {
+		final Map<String, Map<String, List<Document>>> batchSmells = new HashMap<String, Map<String, List<Document>>>();
+		final Map<String, Map<String, Long>> batchClasses = new HashMap<String, Map<String, Long>>();
+		for (Commit commit : commits) {
+			Map<String, List<Document>> smells = smellsByCommit.remove(commit.getId());
+			if (smells != null) {
+				batchSmells.put(commit.getId(), smells);
+				batchClasses.put(commit.getId(), classesByCommit.remove(commit.getId()));
+			}
+		}
+
+		return new ICommitSmells() {
+			@Override
+			public Map<String, List<CodeSmell>> getSmells(Commit commit) {
+				Map<String, List<CodeSmell>> smellsByClass = new HashMap<String, List<CodeSmell>>();
+				Map<String, List<Document>> smells = batchSmells.get(commit.getId());
+				if (smells != null) {
+					for (Map.Entry<String, List<Document>> clazzSmells : smells.entrySet()) {
+						// the same document the miner stores for the class
+						List<CodeSmell> parsed = CodeSmell.parseDocument(
+								new Document("name", clazzSmells.getKey()).append("codesmells", clazzSmells.getValue()));
+						if ((parsed != null) && !parsed.isEmpty()) {
+							smellsByClass.put(clazzSmells.getKey(), parsed);
+						}
+					}
+				}
+
+				return smellsByClass;
+			}
+
+			@Override
+			public Map<String, Long> getClassFiles(Commit commit) {
+				Map<String, Long> classes = batchClasses.get(commit.getId());
+				return classes != null ? classes : Collections.<String, Long>emptyMap();
+			}
+		};
+	}
+
+	@Override
+	public void close() {
+		smellsByCommit.clear();
+		classesByCommit.clear();
+	}
+
+	/**
+	 * Keeps what a detector finds in the commit being analysed
+	 */
+	private class CapturingCodeSmell implements IDirectCodeSmell {
+
+		private IDirectCodeSmell detector;
+
+		public CapturingCodeSmell(IDirectCodeSmell detector) {
+			this.detector = detector;
+		}
+
+		@Override
+		public Document detect(AbstractClassDeclaration type, AST ast) {
+			Document smell = detector.detect(type, ast);
+			if (currentClasses != null) {
+				// the parser names the document after the path of the diff
+				currentClasses.put(type.getName(), StringUtils.encodeToCRC32(ast.getDocument().getName()));
+			}
+			if ((smell != null) && (currentSmells != null)) {
+				List<Document> smells = currentSmells.get(type.getName());
+				if (smells == null) {
+					smells = new ArrayList<Document>();
+					currentSmells.put(type.getName(), smells);
+				}
+				smells.add(smell);
+			}
+
+			return smell;
+		}
+
+		@Override
+		public CodeSmellId getId() {
+			return detector.getId();
+		}
+
+		@Override
+		public Document getThresholds() {
+			return detector.getThresholds();
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Repository;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+
+import br.org.ocean.persistence.CodeAnalysisHandler;
+import br.org.ocean.persistence.CommitCursor;
+import br.org.ocean.persistence.CommitCursorHandler;
+
+/**
+ * Commits and direct code analysis persisted by the miner
+ */
+public class MongoSmellSource implements ISmellSource {
+
+	// only what is needed to parse the smells of each class
+	private static final Bson PROJECTION = Projections.include("commit", "filehash", "classes.name",
+			"classes.codesmells");
+
+	private CommitCursorHandler commitHandler = new CommitCursorHandler();
+	private CodeAnalysisHandler analysisHandler = new CodeAnalysisHandler();
+	private CommitCursor cursor;
+
+	@Override
+	public long countCommits(Repository repository, Date since) {
+		return commitHandler.countByRepository(repository.getId(), since);
+	}
+
+	@Override
+	public Iterator<Commit> findCommits(Repository repository, Date since, int batchSize) {
+		close();
+		cursor = commitHandler.findByRepository(repository.getId(), batchSize, since);
+
+		return cursor;
+	}
+
+	@Override
+	public ICommitSmells findSmells(List<Commit> commits) {
+		if (commits.isEmpty()) {
+			return CodeAnalysisIndex.index(new ArrayList<Document>());
+		}
+
+		// a single query brings the analysis of the whole batch
+		List<String> commitIds = new ArrayList<String>(commits.size());
+		for (Commit commit : commits) {
+			commitIds.add(commit.getId());
+		}
+
+		return CodeAnalysisIndex.index(analysisHandler.findMany(Filters.in("commit", commitIds), PROJECTION));
+	}
+
+	@Override
+	public void close() {
+		if (cursor != null) {
+			cursor.close();
+			cursor = null;
+		}
+	}
+
+}
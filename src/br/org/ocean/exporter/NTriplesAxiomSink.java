@@ -0,0 +1,129 @@
+package br.org.ocean.exporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+/**
+ * Writes axioms straight to an output stream as N-Triples, one line per
+ * triple, so nothing is kept on the heap once an axiom is written
+ */
+public class NTriplesAxiomSink implements IAxiomSink {
+
+	private static final String RDF_TYPE = "<" + OWLRDFVocabulary.RDF_TYPE.getIRI() + ">";
+
+	private Writer writer;
+
+	public NTriplesAxiomSink(OutputStream out) {
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		try {
+			if (axiom instanceof OWLClassAssertionAxiom) {
+				OWLClassAssertionAxiom assertion = (OWLClassAssertionAxiom) axiom;
+				writeTriple(iri(assertion.getIndividual()), RDF_TYPE,
+						iri(assertion.getClassExpression().asOWLClass().getIRI()));
+			} else if (axiom instanceof OWLDataPropertyAssertionAxiom) {
+				OWLDataPropertyAssertionAxiom assertion = (OWLDataPropertyAssertionAxiom) axiom;
+				writeTriple(iri(assertion.getSubject()),
+						iri(assertion.getProperty().asOWLDataProperty().getIRI()),
+						literal(assertion.getObject()));
+			} else if (axiom instanceof OWLObjectPropertyAssertionAxiom) {
+				OWLObjectPropertyAssertionAxiom assertion = (OWLObjectPropertyAssertionAxiom) axiom;
+				writeTriple(iri(assertion.getSubject()),
+						iri(assertion.getProperty().asOWLObjectProperty().getIRI()),
+						iri(assertion.getObject()));
+			} else {
+				throw new IllegalArgumentException("axiom not supported by the streaming writer: " + axiom);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		for (OWLAxiom axiom : axioms) {
+			addAxiom(axiom);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.flush();
+	}
+
+	private void writeTriple(String subject, String predicate, String object) throws IOException {
+		writer.write(subject);
+		writer.write(' ');
+		writer.write(predicate);
+		writer.write(' ');
+		writer.write(object);
+		writer.write(" .\n");
+	}
+
+	private String iri(OWLIndividual individual) {
+		return iri(individual.asOWLNamedIndividual().getIRI());
+	}
+
+	private String iri(IRI iri) {
+		return "<" + iri.toString() + ">";
+	}
+
+	private String literal(OWLLiteral literal) {
+		StringBuilder builder = new StringBuilder("\"");
+		String value = literal.getLiteral();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+		if (literal.hasLang()) {
+			builder.append('@').append(literal.getLang());
+		} else {
+			builder.append("^^<").append(literal.getDatatype().getIRI().toString()).append('>');
+		}
+
+		return builder.toString();
+	}
+
+}
@@ -1,308 +1,747 @@
 package br.org.ocean.exporter;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.math.BigInteger;
-import java.security.SecureRandom;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
-
-import org.bson.Document;
-import org.repositoryminer.codesmell.CodeSmellId;
-import org.repositoryminer.model.ClassCodeSmell;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
 import org.repositoryminer.model.CodeSmell;
 import org.repositoryminer.model.Commit;
 import org.repositoryminer.model.Contributor;
-import org.repositoryminer.model.Diff;
-import org.repositoryminer.model.MethodCodeSmell;
-import org.repositoryminer.model.Metric;
 import org.repositoryminer.model.Repository;
-import org.repositoryminer.persistence.handler.CommitDocumentHandler;
-import org.repositoryminer.persistence.handler.DirectCodeAnalysisDocumentHandler;
 import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
 import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
-import org.semanticweb.owlapi.model.OWLClass;
-import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLDataFactory;
-import org.semanticweb.owlapi.model.OWLDataProperty;
-import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLIndividual;
-import org.semanticweb.owlapi.model.OWLNamedIndividual;
-import org.semanticweb.owlapi.model.OWLObjectProperty;
-import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.OWLOntologyStorageException;
-import org.semanticweb.owlapi.model.PrefixManager;
-import org.semanticweb.owlapi.util.DefaultPrefixManager;
-import org.semanticweb.owlapi.util.SimpleIRIMapper;
 
 import br.org.ocean.IExportProgressListener;
 import br.org.ocean.ILogger;
 
 public class OntoExporter {
-	private static final PrefixManager smellsPrefix = new DefaultPrefixManager(
-			"http://www.semanticweb.org/resys/ontologies/2016/1/codesmells#");
-	private static final PrefixManager metricsPrefix = new DefaultPrefixManager(
-			"http://www.semanticweb.org/resys/ontologies/2016/1/metrics#");
-	private static final PrefixManager repositoriesPrefix = new DefaultPrefixManager(
-			"http://www.semanticweb.org/resys/ontologies/2016/1/repositories#");
-	private static final PrefixManager oceanPrefix = new DefaultPrefixManager(
-			"http://www.semanticweb.org/resys/ontologies/2016/2/ocean#");
+	// extension declaring the properties of export.metrics=compact
+	private static final String COMPACT_METRICS = "ocean-compact";
 
 	// globals
 	private OWLOntologyManager manager;
 	private OWLOntology onto;
+	// imported by the index and the shards of sharded exports
+	private IRI baseIri;
 	private OWLDataFactory factory;
+	private IAxiomSink sink;
+	private ShardedAxiomSink shards;
 
 	private IExportProgressListener listener;
 	private ILogger logger;
 	private String path;
+	private ExportSettings settings;
+	private IIdStrategy ids;
+	private ISmellSource source;
+	// smells alive while commits are exported, only when exporting changes
+	private SmellLifecycle lifecycle;
+	// smells of the visited commits, only when writing columns
+	private SmellColumnsWriter columns;
+	// updated by every visited commit, the ones named by the settings first
+	private List<ISmellAggregator> aggregators = new ArrayList<ISmellAggregator>();
+	private List<ISmellAggregator> addedAggregators = new ArrayList<ISmellAggregator>();
+	private ExportStatistics statistics;
 
 	private Map<String, OWLIndividual> addedCommitters;
+	private int exportedCommits;
+	private File outputFile;
+	private File columnsFile;
+	// made durable at every checkpoint, the ontology saved or the stream
+	// written by the export
+	private OWLOntology output;
+	private CheckpointOutputStream outputStream;
+	private boolean checkpoints;
+
+	public OntoExporter init(ILogger logger, IExportProgressListener listener, Properties properties)
+			throws OWLOntologyCreationException, IOException {
+		return init(logger, listener, properties, BaseOntologies.read(properties.getProperty("ontos.ocean.path")));
+	}
 
-	public OntoExporter init(ILogger logger, IExportProgressListener listener, Properties properties) throws OWLOntologyCreationException {
+	/**
+	 * @param base
+	 *            ontologies read beforehand, they can be shared by many
+	 *            exporters
+	 */
+	public OntoExporter init(ILogger logger, IExportProgressListener listener, Properties properties,
+			BaseOntologies base) throws OWLOntologyCreationException {
 		this.logger = logger;
 		this.listener = listener;
+		settings = new ExportSettings(properties);
+		ids = settings.isContentIds() ? new ContentIdStrategy() : new RandomIdStrategy();
 		addedCommitters = new HashMap<String, OWLIndividual>();
 		manager = OWLManager.createOWLOntologyManager();
+		// load ocean ontology (and the imported/referenced ontologies)
+		onto = base.loadInto(manager);
+		baseIri = onto.getOntologyID().getOntologyIRI().get();
+		if (settings.isCompactMetrics()) {
+			// the data properties of the metrics are declared by an extension
+			OWLOntology extension = base.loadExtensionInto(manager, COMPACT_METRICS);
+			manager.addAxioms(onto, extension.axioms());
+			baseIri = extension.getOntologyID().getOntologyIRI().get();
+		}
 
-		path = properties.getProperty("ontos.ocean.path");
-		// load imported/referenced ontologies
-		manager.getIRIMappers()
-				.add(new SimpleIRIMapper(IRI.create("http://www.semanticweb.org/resys/ontologies/2016/1/codesmells"),
-						IRI.create("file:////" + path + "/codesmells.owl")));
-		manager.getIRIMappers()
-				.add(new SimpleIRIMapper(IRI.create("http://www.semanticweb.org/resys/ontologies/2016/1/repositories"),
-						IRI.create("file:////" + path + "/repositories.owl")));
-		manager.getIRIMappers()
-				.add(new SimpleIRIMapper(IRI.create("http://www.semanticweb.org/resys/ontologies/2016/1/metrics"),
-						IRI.create("file:////" + path + "/metrics.owl")));
-		// load ocean ontology
-		onto = manager.loadOntologyFromOntologyDocument(IRI.create("file:////" + path + "/ocean.owl"));
-
-		// next time path will be used to export the ontology
+		// path used to export the ontology
 		path = properties.getProperty("ontos.output.path");
 
 		return this;
 	}
 
-	public void export(Repository repository) throws FileNotFoundException, OWLOntologyStorageException {
-		// populate the ontology
-		populate(repository);
-		// export to new onto file
-		String filePath = path + "/ocean_" + generateUid() + ".owl";
-		java.io.File file = new java.io.File(filePath);
+	/**
+	 * @return how many commits of the last export had smells and were added
+	 *         to the ontology
+	 */
+	public int getExportedCommits() {
+		return exportedCommits;
+	}
 
-		FileOutputStream outStream = new FileOutputStream(file);
-		manager.saveOntology(onto, new StreamDocumentTarget(outStream));
+	/**
+	 * @param source
+	 *            where commits and smells come from instead of the miner
+	 *            database
+	 */
+	public OntoExporter setSmellSource(ISmellSource source) {
+		this.source = source;
 
-		logger.log("new ontology saved as '" + filePath + "'");
+		return this;
 	}
 
-	private void populate(Repository repository) {
-		factory = manager.getOWLDataFactory();
-		// adds a repository individual
-		OWLClass repo = factory.getOWLClass(":Repository", repositoriesPrefix);
-		OWLNamedIndividual repositoryInd = factory.getOWLNamedIndividual(generateUid(), oceanPrefix);
-		OWLClassAssertionAxiom repositoryAssertion = factory.getOWLClassAssertionAxiom(repo, repositoryInd);
-		manager.addAxiom(onto, repositoryAssertion);
-		// name of the project
-		OWLDataProperty nameValue = factory.getOWLDataProperty("name", repositoriesPrefix);
-		OWLDataPropertyAssertionAxiom nameAssertion = factory.getOWLDataPropertyAssertionAxiom(nameValue, repositoryInd,
-				repository.getName());
-		manager.addAxiom(onto, nameAssertion);
-		// adds all commits from the repository
-		populateCommits(repository);
+	/**
+	 * @param aggregator
+	 *            summary updated by the commits of every following export,
+	 *            besides the ones named by export.aggregates, its report is
+	 *            written next to the ontology
+	 */
+	public OntoExporter addAggregator(ISmellAggregator aggregator) {
+		addedAggregators.add(aggregator);
+
+		return this;
 	}
 
-	private void populateCommits(Repository repository) {
-		CommitDocumentHandler handler = new CommitDocumentHandler();
-		// retrieving commits from the repository
-		List<Document> commitDocs = handler.findByRepository(repository.getId());
-		List<Commit> commits = Commit.parseDocuments(commitDocs);
+	/**
+	 * @return the ontology written by the last export, the index of a
+	 *         sharded export
+	 */
+	public File getOutputFile() {
+		return outputFile;
+	}
 
-		listener.exportStart(commits.size());
-		
-		int step = 0;
-		for (Commit commit : commits) {
-			listener.exportProgress(++step);
-			
-			// adding only commits that have produced smells
-			Map<String, List<CodeSmell>> smells = getSmells(commit);
-			if (!smells.isEmpty()) {
-				Contributor contrib = commit.getCommitter();
-				// not adding the same committer twice
-				String email = contrib.getEmail();
-				email = email.replaceAll("@", "_at_").replaceAll(" ", "_");
-				OWLIndividual committer;
-				if (!addedCommitters.containsKey(email)) {
-					committer = addCommitter(contrib, email);
-				} else {
-					committer = addedCommitters.get(email);
+	/**
+	 * @return time and counts of the last export
+	 */
+	public ExportStatistics getStatistics() {
+		return statistics;
+	}
+
+	public void export(Repository repository)
+			throws IOException, OWLOntologyStorageException, OWLOntologyCreationException {
+		export(repository, null);
+	}
+
+	/**
+	 * @param reference
+	 *            the mined tag/branch, it tells apart the checkpoints of
+	 *            incremental exports of the same repository
+	 */
+	public void export(Repository repository, String reference)
+			throws IOException, OWLOntologyStorageException, OWLOntologyCreationException {
+		statistics = new ExportStatistics();
+		String extension = settings.getExtension();
+		checkpoints = settings.getCheckpointCommits() > 0;
+		if (checkpoints && !addedAggregators.isEmpty()) {
+			throw new IllegalStateException(ExportSettings.CHECKPOINT_COMMITS + " is not supported by aggregators");
+		}
+		ExportCheckpoint checkpoint = loadCheckpoint(repository, reference);
+		String filePath = checkpoint.getOutputPath();
+		boolean append = canAppend(checkpoint);
+		if (!append) {
+			checkpoint = new ExportCheckpoint(checkpoint.getFile());
+			filePath = path + "/ocean_" + ids.getExportId(repository, reference) + extension;
+			checkpoint.setOutputPath(filePath);
+		} else if (checkpoint.isPartial()) {
+			logger.log("resuming the export stopped after the commits of " + checkpoint.getLastDate());
+		}
+		outputFile = new File(filePath);
+		columnsFile = getColumnsFile(filePath);
+		if (settings.isColumns()) {
+			columns = new SmellColumnsWriter();
+			if (append && columnsFile.exists()) {
+				// the smells of the previous exports are kept
+				columns.addAll(SmellColumns.open(columnsFile));
+			}
+		}
+
+		if (settings.isStreaming()) {
+			exportStreaming(repository, checkpoint, append);
+		} else {
+			if (settings.getShard() != ShardPolicy.NONE) {
+				output = getIndex(checkpoint, append);
+				shards = new ShardedAxiomSink(manager, output, baseIri, new File(filePath), settings, statistics,
+						append ? checkpoint.getShards() : 0, checkpoints);
+				sink = shards;
+			} else {
+				if (append) {
+					// the previous ontology is the overlay of the new commits
+					manager.removeOntology(onto);
+					try (InputStream inStream = ExportFiles.openInput(new File(filePath), settings)) {
+						onto = manager.loadOntologyFromOntologyDocument(inStream);
+					}
 				}
-				// creating and binding individuals
-				OWLIndividual commitInd = addCommit(commit, committer);
-				addCodeSmells(smells, commitInd);
+				output = onto;
+				sink = new BufferedAxiomSink(new OntologyAxiomSink(manager, onto));
 			}
+			// populate the ontology
+			populate(repository, checkpoint, append);
+			sink.close();
+			if (shards != null) {
+				checkpoint.setShards(shards.getShards());
+				shards = null;
+			}
+			saveOntology();
+			output = null;
+
+			logger.log((append ? "ontology updated at '" : "new ontology saved as '") + filePath + "'");
 		}
+		if (columns != null) {
+			writeColumns();
+			columns = null;
+			logger.log("smell columns saved as '" + columnsFile + "'");
+		}
+		writeReports(filePath, append);
+
+		// the checkpoint of a whole export is continued by incremental exports only
+		if (settings.isIncremental() || checkpoints) {
+			storeCheckpoint(checkpoint, false);
+		}
+
+		statistics.finish();
+		statistics.report(logger);
 	}
 
-	private OWLIndividual addCommitter(Contributor committer, String email) {
-		// adds committer if not added
-		OWLClass committerClazz = factory.getOWLClass(":Committer", repositoriesPrefix);
-		OWLIndividual committerIndiv = factory.getOWLNamedIndividual(email, oceanPrefix);
-		OWLClassAssertionAxiom committerAssertion = factory.getOWLClassAssertionAxiom(committerClazz, committerIndiv);
-		manager.addAxiom(onto, committerAssertion);
-		// name of the committer
-		OWLDataProperty nameValue = factory.getOWLDataProperty("name", repositoriesPrefix);
-		OWLDataPropertyAssertionAxiom measuredValueAssertion = factory.getOWLDataPropertyAssertionAxiom(nameValue,
-				committerIndiv, committer.getName());
-		manager.addAxiom(onto, measuredValueAssertion);
-		// adding new committer to avois duplication
-		addedCommitters.put(email, committerIndiv);
-
-		return committerIndiv;
-	}
-
-	private OWLIndividual addCommit(Commit commit, OWLIndividual committerInd) {
-		// adds a commit individual
-		OWLClass commitClazz = factory.getOWLClass(":Commit", repositoriesPrefix);
-		OWLIndividual commitInd = factory.getOWLNamedIndividual(commit.getId(), oceanPrefix);
-		OWLClassAssertionAxiom commitAssertion = factory.getOWLClassAssertionAxiom(commitClazz, commitInd);
-		manager.addAxiom(onto, commitAssertion);
-		// date of the commit
-		OWLDataProperty dateValue = factory.getOWLDataProperty("datetime", repositoriesPrefix);
-		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-		String commitDate = dateFormat.format(commit.getCommitDate());
-		OWLDataPropertyAssertionAxiom dateValueAssertion = factory.getOWLDataPropertyAssertionAxiom(dateValue,
-				commitInd, commitDate);
-		manager.addAxiom(onto, dateValueAssertion);
-		// binds the commit to the committer
-		OWLObjectProperty hasCommited = factory.getOWLObjectProperty("hasCommited", repositoriesPrefix);
-		OWLObjectPropertyAssertionAxiom hasCommitedAssertion = factory.getOWLObjectPropertyAssertionAxiom(hasCommited,
-				committerInd, commitInd);
-		manager.addAxiom(onto, hasCommitedAssertion);
-
-		return commitInd;
-	}
-
-	private void addCodeSmells(Map<String, List<CodeSmell>> smellsByClass, OWLIndividual commitInd) {
-		for (Entry<String, List<CodeSmell>> e : smellsByClass.entrySet()) {
-			List<CodeSmell> smells = e.getValue();
-			for (CodeSmell smell : smells) {
-				OWLIndividual smellInd = null;
-				if (smell instanceof ClassCodeSmell) {
-					ClassCodeSmell cSmell = (ClassCodeSmell) smell;
-					smellInd = addClassCodeSmell(e.getKey(), cSmell);
-				} else if (smell instanceof MethodCodeSmell) {
-					MethodCodeSmell mSmell = (MethodCodeSmell) smell;
-					smellInd = addMethodCodeSmell(e.getKey(), mSmell);
+	/**
+	 * @return true if the export of the reference goes on with the output of
+	 *         a previous export, the commits it visited are not exported again
+	 */
+	public boolean canAppend(Repository repository, String reference) throws IOException {
+		checkpoints = settings.getCheckpointCommits() > 0;
+
+		return canAppend(loadCheckpoint(repository, reference));
+	}
+
+	private ExportCheckpoint loadCheckpoint(Repository repository, String reference) throws IOException {
+		// incremental exports start from where the previous export stopped,
+		// any export that takes checkpoints from where a stopped one did
+		if (settings.isIncremental() || checkpoints) {
+			return ExportCheckpoint.load(getCheckpointFile(repository, reference));
+		}
+
+		return new ExportCheckpoint(getCheckpointFile(repository, reference));
+	}
+
+	private boolean canAppend(ExportCheckpoint checkpoint) {
+		String filePath = checkpoint.getOutputPath();
+
+		return (filePath != null) && (settings.isIncremental() || checkpoint.isPartial())
+				&& filePath.endsWith(settings.getExtension()) && new File(filePath).exists();
+	}
+
+	private void exportStreaming(Repository repository, ExportCheckpoint checkpoint, boolean append)
+			throws IOException, OWLOntologyStorageException {
+		String filePath = checkpoint.getOutputPath();
+		File file = new File(filePath);
+		if (append && (checkpoint.getOutputLength() > 0)) {
+			// the axioms written after the checkpoint are written again
+			CheckpointOutputStream.truncate(file, checkpoint.getOutputLength());
+		}
+		long length = append ? file.length() : 0;
+
+		try (CheckpointOutputStream outStream = new CheckpointOutputStream(file, append, settings)) {
+			outputStream = outStream;
+			if (!append) {
+				ExportStatistics.Timer timer = statistics.start(ExportStage.SERIALIZE);
+				// the header, imports and axioms of the base ontology are written
+				// only once, the storer must not close the stream we keep writing to
+				manager.saveOntology(onto, settings.getFormat().createDocumentFormat(), new StreamDocumentTarget(new FilterOutputStream(outStream) {
+					@Override
+					public void close() throws IOException {
+						flush();
+					}
+				}));
+				timer.stop(onto.getAxiomCount());
+			}
+			// every other axiom goes straight to the file
+			sink = new NTriplesAxiomSink(outStream);
+			populate(repository, checkpoint, append);
+			sink.close();
+		} catch (IOException | RuntimeException e) {
+			discardOutput(file, length, append);
+			throw e;
+		} finally {
+			outputStream = null;
+		}
+		checkpoint.setOutputLength(file.length());
+
+		logger.log((append ? "ontology appended to '" : "new ontology streamed to '") + filePath + "'");
+	}
+
+	/**
+	 * Takes back what a failed export streamed, a file that looks complete
+	 * but misses commits must not be left behind. The output of a checkpoint
+	 * is kept, the export resumes from it
+	 *
+	 * @param length
+	 *            the length of an appended file before the export
+	 */
+	private void discardOutput(File file, long length, boolean append) throws IOException {
+		if (checkpoints) {
+			return;
+		}
+		if (append) {
+			CheckpointOutputStream.truncate(file, length);
+		} else {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	/**
+	 * Saves the ontology, replacing the previous one only when done
+	 */
+	private void saveOntology() throws IOException, OWLOntologyStorageException {
+		File tmp = new File(outputFile.getPath() + ".tmp");
+		ExportStatistics.Timer timer = statistics.start(ExportStage.SERIALIZE);
+		try (OutputStream outStream = ExportFiles.openOutput(tmp, false, settings)) {
+			manager.saveOntology(output, settings.getFormat().createDocumentFormat(),
+					new StreamDocumentTarget(outStream));
+		}
+		timer.stop(output.getAxiomCount());
+		Files.move(tmp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void writeColumns() throws IOException {
+		File tmp = new File(columnsFile.getPath() + ".tmp");
+		ExportStatistics.Timer timer = statistics.start(ExportStage.WRITE_COLUMNS);
+		columns.write(tmp);
+		timer.stop(columns.getRows());
+		Files.move(tmp.toPath(), columnsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Makes every commit visited so far durable, then stores the checkpoint
+	 *
+	 * @param partial
+	 *            true if the export goes on, it is resumed from the
+	 *            checkpoint if stopped
+	 */
+	private void storeCheckpoint(ExportCheckpoint checkpoint, boolean partial) throws IOException {
+		if (partial) {
+			ExportStatistics.Timer timer = statistics.start(ExportStage.CHECKPOINT);
+			sink.flush();
+			if (outputStream != null) {
+				checkpoint.setOutputLength(outputStream.sync());
+			} else {
+				// only sharded exports take checkpoints besides streaming ones
+				shards.saveShards();
+				checkpoint.setShards(shards.getShards());
+				try {
+					saveOntology();
+				} catch (OWLOntologyStorageException e) {
+					throw new IOException("failed to save ontology " + outputFile, e);
 				}
-				// links commit to smell (hasIntroduced)
-				OWLObjectProperty hasIntroduced = factory.getOWLObjectProperty("hasIntroduced", oceanPrefix);
-				OWLObjectPropertyAssertionAxiom hasIntroducedAssertion = factory.getOWLObjectPropertyAssertionAxiom(hasIntroduced,
-						commitInd, smellInd);
-				manager.addAxiom(onto, hasIntroducedAssertion);
 			}
+			if (columns != null) {
+				writeColumns();
+			}
+			timer.stop(1);
+		}
+
+		checkpoint.setCommitters(addedCommitters.keySet());
+		if (lifecycle != null) {
+			checkpoint.setSmells(lifecycle.getState());
+			checkpoint.setFiles(lifecycle.getFiles());
 		}
+		checkpoint.setPartial(partial);
+		checkpoint.store();
 	}
-	
-	private OWLIndividual addCodeSmell(String clazzName, CodeSmellId smellId, List<Metric> metrics) {
-		// add a "class smell"
-		OWLClass smellClazz = factory.getOWLClass(":" + smellId.getLabel(), smellsPrefix);
-		OWLIndividual smellInd = factory.getOWLNamedIndividual(generateUid() + "_" + smellId.getLabel(),
-				oceanPrefix);
-		OWLClassAssertionAxiom smellAssertion = factory.getOWLClassAssertionAxiom(smellClazz, smellInd);
-		manager.addAxiom(onto, smellAssertion);
-		// and the location of the smell in the source code
-		OWLDataProperty foundInValue = factory.getOWLDataProperty("foundIn", oceanPrefix);
-		OWLDataPropertyAssertionAxiom foundInValueAssertion = factory.getOWLDataPropertyAssertionAxiom(foundInValue,
-				smellInd, clazzName);
-		manager.addAxiom(onto, foundInValueAssertion);
-		// add all metrics used to detect the smell
-		for (Metric metric : metrics) {
-			addMetric(smellInd, metric.getName(), metric.getValue());
+
+	/**
+	 * @param append
+	 *            true if the export appended to a previous one, its reports
+	 *            cover only the commits it added and are named after the time
+	 *            it ended, so the reports of the previous exports are kept
+	 */
+	private void writeReports(String filePath, boolean append) throws IOException {
+		String basePath = filePath.substring(0, filePath.length() - settings.getExtension().length());
+		if (append && !aggregators.isEmpty()) {
+			basePath += "_" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+		}
+		for (ISmellAggregator aggregator : aggregators) {
+			File file = new File(basePath + "_" + aggregator.getName() + ".csv");
+			try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+					CSVPrinter printer = CSVFormat.DEFAULT.withHeader(aggregator.getHeader()).print(writer)) {
+				aggregator.printRecords(printer);
+			}
+			logger.log("report saved as '" + file + "'");
 		}
+	}
 
-		return smellInd;
+	private File getColumnsFile(String filePath) {
+		return new File(filePath.substring(0, filePath.length() - settings.getExtension().length()) + ".smells");
 	}
 
-	private OWLIndividual addClassCodeSmell(String clazzName, ClassCodeSmell codeSmell) {
-		return addCodeSmell(clazzName, codeSmell.getSmellId(), codeSmell.getMetrics());
+	/**
+	 * @return the index ontology of a sharded export, importing the ocean
+	 *         ontology and the shards
+	 */
+	private OWLOntology getIndex(ExportCheckpoint checkpoint, boolean append)
+			throws IOException, OWLOntologyCreationException {
+		String name = new File(checkpoint.getOutputPath()).getName();
+		name = name.substring(0, name.length() - settings.getExtension().length());
+		IRI indexIri = IRI.create(onto.getOntologyID().getOntologyIRI().get() + "/" + name);
+		if (append) {
+			// the shards written before are not loaded again
+			OWLOntologyLoaderConfiguration config = new OWLOntologyLoaderConfiguration();
+			for (int i = 1; i <= checkpoint.getShards(); i++) {
+				config = config.addIgnoredImport(ShardedAxiomSink.getShardIri(indexIri, i));
+			}
+			try (InputStream inStream = ExportFiles.openInput(new File(checkpoint.getOutputPath()), settings)) {
+				return manager.loadOntologyFromOntologyDocument(new StreamDocumentSource(inStream), config);
+			}
+		}
+
+		OWLOntology index = manager.createOntology(indexIri);
+		manager.applyChange(new AddImport(index, manager.getOWLDataFactory().getOWLImportsDeclaration(baseIri)));
+
+		return index;
 	}
 
-	private OWLIndividual addMethodCodeSmell(String clazzName, MethodCodeSmell codeSmell) {
-		// add a "method smell"
-		OWLIndividual smellInd = addCodeSmell(clazzName, codeSmell.getSmellId(), codeSmell.getMetrics());
-		// and the location of the smell in the source code
-		OWLDataProperty foundInValue = factory.getOWLDataProperty("foundIn", oceanPrefix);
-		OWLDataPropertyAssertionAxiom foundInValueAssertion = factory.getOWLDataPropertyAssertionAxiom(foundInValue,
-				smellInd, codeSmell.getSignature());
-		manager.addAxiom(onto, foundInValueAssertion);
+	private File getCheckpointFile(Repository repository, String reference) {
+		String name = repository.getName() + (reference != null ? "_" + reference : "");
+		return new File(path, "ocean_" + name.replaceAll("[^A-Za-z0-9._-]", "_") + ".checkpoint");
+	}
 
-		return smellInd;
+	private void populate(Repository repository, ExportCheckpoint checkpoint, boolean append) throws IOException {
+		factory = manager.getOWLDataFactory();
+		exportedCommits = 0;
+		if (source == null) {
+			source = settings.isAggregateQuery() ? new AggregatedSmellSource() : new MongoSmellSource();
+		}
+		sink = new StatisticsAxiomSink(sink, statistics);
+		lifecycle = null;
+		if (settings.isSmellChanges()) {
+			lifecycle = new SmellLifecycle(factory, ids);
+			if (append) {
+				lifecycle.setState(checkpoint.getSmells());
+				lifecycle.setFiles(checkpoint.getFiles());
+			}
+		}
+		if (append) {
+			// reusing the repository and committers of the previous export
+			for (String email : checkpoint.getCommitters()) {
+				addedCommitters.put(email, new AxiomBuilder(factory, sink, ids).getCommitter(email));
+			}
+		} else {
+			// adds a repository individual
+			new AxiomBuilder(factory, sink, ids).addRepository(repository);
+		}
+		aggregators = createAggregators();
+		// adds all commits from the repository
+		ExecutorService pool = null;
+		if (settings.getThreads() > 1) {
+			pool = Executors.newFixedThreadPool(settings.getThreads());
+		}
+		try {
+			populateCommits(repository, checkpoint, pool);
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+		// the summaries of an appended export would only cover its own commits
+		if (settings.isAggregatesAxioms() && !append) {
+			AxiomBuilder builder = new AxiomBuilder(factory, sink, ids);
+			for (ISmellAggregator aggregator : aggregators) {
+				aggregator.addAxioms(builder);
+			}
+		}
 	}
 
-	private void addMetric(OWLIndividual codeSmellInd, String metricName, double value) {
-		// BRAIN_METHOD is a smell but also a metric of the BRAIN_CLASS smell
-		// we are going to map it as BM when used as metric
-		if (metricName.equals("BRAIN_METHOD")) {
-			metricName = "BM";
+	private List<ISmellAggregator> createAggregators() {
+		List<ISmellAggregator> created = new ArrayList<ISmellAggregator>();
+		for (String name : settings.getAggregates()) {
+			if (name.equals("committers")) {
+				created.add(new CommitterAggregator());
+			} else if (name.equals("classes")) {
+				created.add(new ClassAggregator());
+			} else {
+				created.add(new SmellAggregator());
+			}
 		}
-		
-		OWLClass metric = factory.getOWLClass(":" + metricName, metricsPrefix);
-		OWLNamedIndividual metricInd = factory.getOWLNamedIndividual(generateUid() + "_" + metricName, oceanPrefix);
-		OWLClassAssertionAxiom metricAssertion = factory.getOWLClassAssertionAxiom(metric, metricInd);
-		manager.addAxiom(onto, metricAssertion);
+		created.addAll(addedAggregators);
 
-		OWLDataProperty measuredValue = factory.getOWLDataProperty("measuredValue", metricsPrefix);
-		OWLDataPropertyAssertionAxiom measuredValueAssertion = factory.getOWLDataPropertyAssertionAxiom(measuredValue,
-				metricInd, value);
-		manager.addAxiom(onto, measuredValueAssertion);
+		return created;
+	}
 
-		OWLObjectProperty hasMeasured = factory.getOWLObjectProperty("hasMeasured", oceanPrefix);
-		OWLObjectPropertyAssertionAxiom hasMeasuredAssertion = factory.getOWLObjectPropertyAssertionAxiom(hasMeasured,
-				codeSmellInd, metricInd);
-		manager.addAxiom(onto, hasMeasuredAssertion);
+	/**
+	 * Sends a whole export of the repository to the sink, nothing is saved
+	 */
+	void populate(Repository repository, IAxiomSink sink) throws IOException {
+		this.sink = sink;
+		statistics = new ExportStatistics();
+		addedCommitters.clear();
+		checkpoints = false;
+		populate(repository, new ExportCheckpoint(null), false);
+		sink.flush();
 	}
 
-	@SuppressWarnings("unchecked")
-	private Map<String, List<CodeSmell>> getSmells(Commit commit) {
-		Map<String, List<CodeSmell>> smellsByClass = new HashMap<String, List<CodeSmell>>();
+	private void populateCommits(Repository repository, ExportCheckpoint checkpoint, ExecutorService pool)
+			throws IOException {
+		// a count is enough to report progress, commits are retrieved batch by batch
+		Date since = checkpoint.getLastDate();
+		long count = source.countCommits(repository, since);
+		if ((since != null) && (checkpoint.getVisitedCommits() >= 0)) {
+			// commits mined after the checkpoint with older dates (merged
+			// branches, rebased work) are not at or after its last date
+			long older = source.countCommits(repository, null) - checkpoint.getVisitedCommits()
+					- (count - checkpoint.getLastCommits());
+			if (older > 0) {
+				if (lifecycle != null) {
+					throw new IllegalStateException(older + " commits older than the last export were mined since, "
+							+ ExportSettings.SMELLS + "=changes needs every commit in order, export it again without "
+							+ ExportSettings.INCREMENTAL);
+				}
+				logger.log(older + " commits older than the last export were mined since, reading every commit");
+				since = null;
+				count = source.countCommits(repository, null);
+			}
+		}
+		listener.exportStart((int) count);
+
+		int step = 0;
+		int visited = 0;
+		int batchSize = settings.getBatchSize();
+		try (ISmellSource commitSource = source;
+				CommitBatchReader batches = new CommitBatchReader(commitSource,
+						commitSource.findCommits(repository, since, batchSize), checkpoint, statistics, batchSize)) {
+			if (settings.getPrefetch() > 0) {
+				// reading the next batches while the current one is exported
+				batches.prefetch(settings.getPrefetch(), settings.getPrefetchThreads());
+			}
+			CommitBatchReader.CommitBatch next;
+			while ((next = batches.next()) != null) {
+				// commits visited by the previous export are skipped
+				for (int i = 0; i < next.getSkipped(); i++) {
+					listener.exportProgress(++step);
+				}
+				List<Commit> batch = next.getCommits();
+				statistics.commitsVisited(batch.size());
+				ICommitSmells index = next.getSmells();
+
+				if (pool == null) {
+					for (Commit commit : batch) {
+						listener.exportProgress(++step);
+
+						// adding only commits that have produced (or removed) smells
+						Map<String, List<CodeSmell>> smells = getSmells(index, commit);
+						SmellChanges changes = getChanges(index, commit, smells);
+						commitVisited(commit, smells, changes);
+						if (changes != null ? !changes.isEmpty() : !smells.isEmpty()) {
+							startCommit(commit);
+							addCommitter(commit.getCommitter(), sink);
+							populateCommit(commit, smells, changes, sink);
+							commitExported();
+						}
+					}
+				} else {
+					step = populateCommits(batch, index, pool, step);
+				}
 
-		DirectCodeAnalysisDocumentHandler handler = new DirectCodeAnalysisDocumentHandler();
+				for (Commit commit : batch) {
+					checkpoint.commitVisited(commit);
+				}
+				// whole batches only, the checkpoint has every commit of them
+				visited += batch.size();
+				if (checkpoints && (visited >= settings.getCheckpointCommits())) {
+					storeCheckpoint(checkpoint, true);
+					visited = 0;
+				}
+			}
+		}
+	}
 
-		List<Diff> diffs = commit.getDiffs();
-		for (Diff diff : diffs) {
-			Document document = handler.getClasses(diff.getHash(), commit.getId());
-			if (document != null) {
-				List<Document> clazzDocs = (List<Document>) document.get("classes");
+	private Map<String, List<CodeSmell>> getSmells(ICommitSmells index, Commit commit) {
+		ExportStatistics.Timer timer = statistics.start(ExportStage.PARSE_SMELLS);
+		Map<String, List<CodeSmell>> smells = index.getSmells(commit);
+		int count = 0;
+		for (List<CodeSmell> clazzSmells : smells.values()) {
+			count += clazzSmells.size();
+		}
+		timer.stop(count);
 
-				for (Document clazzDoc : clazzDocs) {
-					List<CodeSmell> smells = CodeSmell.parseDocument(clazzDoc);
-					if ((smells != null) && (!smells.isEmpty())) {
-						String clazzName = clazzDoc.getString("name");
-						smellsByClass.put(clazzName, smells);
+		return smells;
+	}
+
+	private int populateCommits(List<Commit> batch, final ICommitSmells index, ExecutorService pool, int step)
+			throws IOException {
+		// every commit builds its own axioms in parallel...
+		List<Future<CommitAxioms>> results = new ArrayList<Future<CommitAxioms>>(batch.size());
+		for (final Commit commit : batch) {
+			// the lifecycle of smells follows the order of the commits
+			final Map<String, List<CodeSmell>> parsed = lifecycle != null ? getSmells(index, commit) : null;
+			final SmellChanges changes = getChanges(index, commit, parsed);
+			results.add(pool.submit(new Callable<CommitAxioms>() {
+				@Override
+				public CommitAxioms call() {
+					CommitAxioms result = new CommitAxioms();
+					result.changes = changes;
+					result.smells = parsed != null ? parsed : getSmells(index, commit);
+					// adding only commits that have produced (or removed) smells
+					if (changes != null ? !changes.isEmpty() : !result.smells.isEmpty()) {
+						result.axioms = new CollectingAxiomSink();
+						populateCommit(commit, result.smells, changes, result.axioms);
 					}
+
+					return result;
 				}
+			}));
+		}
+		// ...and they are merged in the same order of a sequential export,
+		// committers included, so the output does not depend on scheduling
+		for (int i = 0; i < batch.size(); i++) {
+			CommitAxioms result = getResult(results.get(i));
+			listener.exportProgress(++step);
+
+			commitVisited(batch.get(i), result.smells, result.changes);
+			if (result.axioms != null) {
+				startCommit(batch.get(i));
+				addCommitter(batch.get(i).getCommitter(), sink);
+				sink.addAxioms(result.axioms.getAxioms());
+				commitExported();
 			}
 		}
 
-		return smellsByClass;
+		return step;
+	}
+
+	private void commitVisited(Commit commit, Map<String, List<CodeSmell>> smells, SmellChanges changes) {
+		if ((columns == null) && aggregators.isEmpty()) {
+			return;
+		}
+
+		ExportStatistics.Timer timer = statistics.start(ExportStage.AGGREGATE);
+		String committer = getCommitterEmail(commit.getCommitter());
+		if (columns != null) {
+			columns.addCommit(commit, committer, smells);
+		}
+		for (ISmellAggregator aggregator : aggregators) {
+			aggregator.addCommit(commit, committer, smells, changes);
+		}
+		timer.stop(1);
+	}
+
+	private void startCommit(Commit commit) throws IOException {
+		// every shard has the committers of its own commits
+		if ((shards != null) && shards.startCommit(commit)) {
+			addedCommitters.clear();
+		}
+	}
+
+	private void commitExported() throws IOException {
+		statistics.commitExported();
+		// axioms are handed over in bulk, every few commits
+		if (++exportedCommits % settings.getFlushCommits() == 0) {
+			sink.flush();
+		}
+	}
+
+	private <T> T getResult(Future<T> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("export interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("failed to export commit: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private void addCommitter(Contributor contrib, IAxiomSink sink) {
+		String email = getCommitterEmail(contrib);
+		// not adding the same committer twice
+		if (!addedCommitters.containsKey(email)) {
+			OWLIndividual committer = new AxiomBuilder(factory, sink, ids).addCommitter(contrib, email);
+			addedCommitters.put(email, committer);
+		}
+	}
+
+	/**
+	 * @return the smells introduced and removed by the commit or null if
+	 *         every smell is added by every commit
+	 */
+	private SmellChanges getChanges(ICommitSmells index, Commit commit, Map<String, List<CodeSmell>> smells) {
+		if (lifecycle == null) {
+			return null;
+		}
+
+		return lifecycle.update(commit, smells, index.getClassFiles(commit));
 	}
 
-	private String generateUid() {
-		SecureRandom random = new SecureRandom();
-		String uid = new BigInteger(130, random).toString(32);
+	private void populateCommit(Commit commit, Map<String, List<CodeSmell>> smells, SmellChanges changes,
+			IAxiomSink sink) {
+		ExportStatistics.Timer timer = statistics.start(ExportStage.BUILD_AXIOMS);
+		AxiomBuilder builder = new AxiomBuilder(factory, sink, ids, settings.isCompactMetrics());
+		OWLIndividual committer = builder.getCommitter(getCommitterEmail(commit.getCommitter()));
+		// creating and binding individuals
+		OWLIndividual commitInd = builder.addCommit(commit, committer);
+		if (changes != null) {
+			builder.addSmellChanges(changes, commitInd);
+		} else {
+			builder.addCodeSmells(commit.getId(), smells, commitInd);
+		}
+		timer.stop(1);
+	}
+
+	private String getCommitterEmail(Contributor contrib) {
+		String email = contrib.getEmail();
+		return email.replaceAll("@", "_at_").replaceAll(" ", "_");
+	}
 
-		return uid;
+	/**
+	 * What a thread found for a commit: its smells, their changes and, if the
+	 * commit must be exported, its axioms
+	 */
+	private static class CommitAxioms {
+		private Map<String, List<CodeSmell>> smells;
+		private SmellChanges changes;
+		private CollectingAxiomSink axioms;
 	}
 
 }
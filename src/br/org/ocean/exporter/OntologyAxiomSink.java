@@ -0,0 +1,40 @@
+package br.org.ocean.exporter;
+
+import java.util.Collection;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+/**
+ * Adds every axiom to an in-memory ontology (the ontology is saved later on)
+ */
+public class OntologyAxiomSink implements IAxiomSink {
+
+	private OWLOntologyManager manager;
+	private OWLOntology onto;
+
+	public OntologyAxiomSink(OWLOntologyManager manager, OWLOntology onto) {
+		this.manager = manager;
+		this.onto = onto;
+	}
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		manager.addAxiom(onto, axiom);
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		manager.addAxioms(onto, axioms.stream());
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
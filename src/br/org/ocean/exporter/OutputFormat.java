@@ -0,0 +1,58 @@
+package br.org.ocean.exporter;
+
+import org.semanticweb.owlapi.formats.NTriplesDocumentFormat;
+import org.semanticweb.owlapi.formats.OWLXMLDocumentFormat;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.formats.TurtleDocumentFormat;
+import org.semanticweb.owlapi.model.OWLDocumentFormat;
+
+/**
+ * Syntaxes exported ontologies can be written in (export.format)
+ */
+public enum OutputFormat {
+
+	OWL(".owl", false),
+	RDFXML(".rdf", false),
+	TURTLE(".ttl", true),
+	NTRIPLES(".nt", true),
+	/** N-Triples encoded by {@link BinaryRdfOutputStream} */
+	BINARY(".rdfb", true);
+
+	private String extension;
+	private boolean streamable;
+
+	private OutputFormat(String extension, boolean streamable) {
+		this.extension = extension;
+		this.streamable = streamable;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * @return true if axioms can be appended to the file one triple at a time,
+	 *         as streaming exports do
+	 */
+	public boolean isStreamable() {
+		return streamable;
+	}
+
+	/**
+	 * @return the format the OWL API writes the ontology in, binary files are
+	 *         encoded from N-Triples
+	 */
+	public OWLDocumentFormat createDocumentFormat() {
+		switch (this) {
+		case OWL:
+			return new OWLXMLDocumentFormat();
+		case RDFXML:
+			return new RDFXMLDocumentFormat();
+		case TURTLE:
+			return new TurtleDocumentFormat();
+		default:
+			return new NTriplesDocumentFormat();
+		}
+	}
+
+}
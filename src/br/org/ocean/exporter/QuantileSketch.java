@@ -0,0 +1,158 @@
+package br.org.ocean.exporter;
+
+/**
+ * Quantiles of a stream of non-negative values within a relative error, in
+ * logarithmic buckets that only count the values falling in them, so the
+ * memory grows with the range of the values and not with their number.
+ * Sketches with the same error can be merged, the result is the sketch of
+ * both streams
+ */
+public class QuantileSketch {
+
+	// values below are counted as 0
+	private static final double MIN_VALUE = 1e-9;
+
+	private double error;
+	// bucket i holds values in (gamma^(i-1), gamma^i]
+	private double gamma;
+	private double logGamma;
+	private long[] buckets = new long[0];
+	private int offset;
+	private long zeros;
+	private long count;
+	private double sum;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	/**
+	 * @param error
+	 *            relative error of the quantiles, 0.01 for 1%
+	 */
+	public QuantileSketch(double error) {
+		this.error = error;
+		gamma = (1 + error) / (1 - error);
+		logGamma = Math.log(gamma);
+	}
+
+	/**
+	 * @param value
+	 *            non-negative, NaN is ignored
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (count++ == 0) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		sum += value;
+
+		if (value < MIN_VALUE) {
+			zeros++;
+		} else {
+			int index = (int) Math.ceil(Math.log(value) / logGamma);
+			grow(index, index);
+			buckets[index - offset]++;
+		}
+	}
+
+	/**
+	 * Adds every value of the other sketch to this one
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.error != error) {
+			throw new IllegalArgumentException("sketches of different errors can not be merged");
+		}
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			min = other.min;
+			max = other.max;
+		} else {
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+		}
+		count += other.count;
+		sum += other.sum;
+		zeros += other.zeros;
+
+		if (other.buckets.length > 0) {
+			grow(other.offset, other.offset + other.buckets.length - 1);
+			for (int i = 0; i < other.buckets.length; i++) {
+				buckets[other.offset + i - offset] += other.buckets[i];
+			}
+		}
+	}
+
+	private void grow(int first, int last) {
+		if (buckets.length == 0) {
+			buckets = new long[last - first + 1];
+			offset = first;
+			return;
+		}
+
+		int newFirst = Math.min(first, offset);
+		int newLast = Math.max(last, offset + buckets.length - 1);
+		if ((newFirst != offset) || (newLast != offset + buckets.length - 1)) {
+			long[] grown = new long[newLast - newFirst + 1];
+			System.arraycopy(buckets, 0, grown, offset - newFirst, buckets.length);
+			buckets = grown;
+			offset = newFirst;
+		}
+	}
+
+	/**
+	 * @param quantile
+	 *            between 0 and 1, 0.5 for the median
+	 * @return the value at the quantile, within the relative error and
+	 *         between the minimum and the maximum, NaN if there are no values
+	 */
+	public double getQuantile(double quantile) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		// rank of the value, from 0
+		long rank = (long) Math.floor(quantile * (count - 1));
+		if (rank < zeros) {
+			return Math.max(min, 0);
+		}
+		long seen = zeros;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen > rank) {
+				// the value of the bucket with the least relative error
+				double value = 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+				return Math.min(max, Math.max(min, value));
+			}
+		}
+
+		return max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count > 0 ? sum / count : Double.NaN;
+	}
+
+}
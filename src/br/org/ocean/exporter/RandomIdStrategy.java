@@ -0,0 +1,41 @@
+package br.org.ocean.exporter;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import org.repositoryminer.model.Repository;
+
+/**
+ * A new random id for every individual, two exports of the same data never
+ * share ids
+ */
+public class RandomIdStrategy implements IIdStrategy {
+
+	// SecureRandom is thread safe, seeding it once is enough
+	private static final SecureRandom random = new SecureRandom();
+
+	@Override
+	public String getExportId(Repository repository, String reference) {
+		return generateUid();
+	}
+
+	@Override
+	public String getRepositoryId(Repository repository) {
+		return generateUid();
+	}
+
+	@Override
+	public String getSmellId(String commitId, String clazzName, String smellLabel, String signature) {
+		return generateUid();
+	}
+
+	@Override
+	public String getMetricId(String metricName, double value) {
+		return generateUid();
+	}
+
+	private String generateUid() {
+		return new BigInteger(130, random).toString(32);
+	}
+
+}
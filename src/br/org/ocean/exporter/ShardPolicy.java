@@ -0,0 +1,15 @@
+package br.org.ocean.exporter;
+
+/**
+ * How commits are split among shard ontologies (export.shard)
+ */
+public enum ShardPolicy {
+
+	/** a single ontology with every commit */
+	NONE,
+	/** a shard every export.shard.size commits */
+	COMMITS,
+	/** a shard per month of commits */
+	MONTH;
+
+}
@@ -0,0 +1,223 @@
+package br.org.ocean.exporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.repositoryminer.model.Commit;
+import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+/**
+ * Sends the axioms of every commit to the shard ontology the commit belongs
+ * to, a shard is saved and removed from the manager as soon as the next one
+ * starts so only one shard is in memory at a time
+ * 
+ * Axioms added before the first commit go to the index ontology, which
+ * imports every shard. Shards are saved next to the index, named after it and
+ * numbered, and import the ontology the index imports, OWL tools resolve them
+ * from the folder of the index
+ * 
+ * An export that takes checkpoints writes shards only when it takes one, so
+ * the shards on disk never hold commits past the last checkpoint
+ */
+public class ShardedAxiomSink implements IAxiomSink {
+
+	private OWLOntologyManager manager;
+	private OWLOntology index;
+	private IRI baseIri;
+	private File indexFile;
+	private ExportSettings settings;
+	private ExportStatistics statistics;
+	private IAxiomSink indexSink;
+	private boolean checkpoints;
+	// shards ended since the last checkpoint, by number
+	private Map<Integer, OWLOntology> unsaved = new LinkedHashMap<Integer, OWLOntology>();
+
+	private OWLOntology shard;
+	private IAxiomSink shardSink;
+	private int shards;
+	private int shardCommits;
+	private String shardMonth;
+	private SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+
+	/**
+	 * @param baseIri
+	 *            ontology imported by every shard
+	 * @param shards
+	 *            shards written by previous exports to the same index, the
+	 *            files of later shards are left over by a stopped export and
+	 *            are deleted
+	 * @param checkpoints
+	 *            true if shards are written by {@link #saveShards()} only
+	 */
+	public ShardedAxiomSink(OWLOntologyManager manager, OWLOntology index, IRI baseIri, File indexFile,
+			ExportSettings settings, ExportStatistics statistics, int shards, boolean checkpoints)
+			throws IOException {
+		this.manager = manager;
+		this.index = index;
+		this.baseIri = baseIri;
+		this.indexFile = indexFile;
+		this.settings = settings;
+		this.statistics = statistics;
+		this.shards = shards;
+		this.checkpoints = checkpoints;
+		indexSink = new BufferedAxiomSink(new OntologyAxiomSink(manager, index));
+		monthFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		int stale = shards + 1;
+		while (Files.deleteIfExists(getShardFile(stale).toPath())) {
+			stale++;
+		}
+	}
+
+	public static IRI getShardIri(IRI indexIri, int shard) {
+		return IRI.create(indexIri + String.format("_%04d", shard));
+	}
+
+	/**
+	 * Must be called before the axioms of every commit
+	 * 
+	 * @return true if the commit starts a new shard
+	 */
+	public boolean startCommit(Commit commit) throws IOException {
+		String month = monthFormat.format(commit.getCommitDate());
+		if (shard != null) {
+			boolean full;
+			if (settings.getShard() == ShardPolicy.MONTH) {
+				full = !month.equals(shardMonth);
+			} else {
+				full = shardCommits >= settings.getShardSize();
+			}
+			if (!full) {
+				shardCommits++;
+				return false;
+			}
+		}
+
+		closeShard();
+		openShard();
+		shardMonth = month;
+		shardCommits = 1;
+
+		return true;
+	}
+
+	/**
+	 * @return how many shards the index imports
+	 */
+	public int getShards() {
+		return shards;
+	}
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		(shardSink != null ? shardSink : indexSink).addAxiom(axiom);
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		(shardSink != null ? shardSink : indexSink).addAxioms(axioms);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		indexSink.flush();
+		if (shardSink != null) {
+			shardSink.flush();
+		}
+	}
+
+	/**
+	 * Saves the last shard, the index is left to the caller
+	 */
+	@Override
+	public void close() throws IOException {
+		closeShard();
+		saveShards();
+		indexSink.close();
+	}
+
+	private void openShard() throws IOException {
+		shards++;
+		IRI shardIri = getShardIri(index.getOntologyID().getOntologyIRI().get(), shards);
+		try {
+			shard = manager.createOntology(shardIri);
+		} catch (OWLOntologyCreationException e) {
+			throw new IOException("failed to create shard " + shardIri, e);
+		}
+		manager.applyChange(new AddImport(shard, manager.getOWLDataFactory().getOWLImportsDeclaration(baseIri)));
+		manager.applyChange(new AddImport(index, manager.getOWLDataFactory().getOWLImportsDeclaration(shardIri)));
+		shardSink = new BufferedAxiomSink(new OntologyAxiomSink(manager, shard));
+	}
+
+	/**
+	 * Saves the shards ended since the last call and the shard the last
+	 * commits went to as it is so far, it goes on taking the axioms of the
+	 * next commits and is saved again
+	 */
+	public void saveShards() throws IOException {
+		for (Map.Entry<Integer, OWLOntology> ended : unsaved.entrySet()) {
+			saveShard(ended.getValue(), ended.getKey());
+			manager.removeOntology(ended.getValue());
+		}
+		unsaved.clear();
+		if (shard != null) {
+			shardSink.flush();
+			saveShard(shard, shards);
+		}
+	}
+
+	private void saveShard(OWLOntology shard, int number) throws IOException {
+		File file = getShardFile(number);
+		File tmp = new File(file.getPath() + ".tmp");
+		ExportStatistics.Timer timer = statistics.start(ExportStage.SERIALIZE);
+		try (OutputStream outStream = ExportFiles.openOutput(tmp, false, settings)) {
+			manager.saveOntology(shard, settings.getFormat().createDocumentFormat(),
+					new StreamDocumentTarget(outStream));
+		} catch (OWLOntologyStorageException e) {
+			throw new IOException("failed to save shard " + file, e);
+		}
+		timer.stop(shard.getAxiomCount());
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void closeShard() throws IOException {
+		if (shard == null) {
+			return;
+		}
+
+		shardSink.close();
+		if (checkpoints) {
+			// saved with the next checkpoint
+			unsaved.put(shards, shard);
+		} else {
+			saveShard(shard, shards);
+			// releasing the shard, nothing refers to it but the index imports
+			manager.removeOntology(shard);
+		}
+		shard = null;
+		shardSink = null;
+	}
+
+	private File getShardFile(int number) {
+		String extension = settings.getExtension();
+		String name = indexFile.getName();
+		name = name.substring(0, name.length() - extension.length());
+
+		return new File(indexFile.getParentFile(), name + String.format("_%04d", number) + extension);
+	}
+
+}
@@ -0,0 +1,121 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVPrinter;
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Metric;
+
+/**
+ * Distribution of every metric by type of smell (export.aggregates smells):
+ * how many smells of the type were found and the percentiles of the metric
+ * among them, the smell all stands for every type
+ */
+public class SmellAggregator implements ISmellAggregator {
+
+	// relative error of the percentiles
+	private static final double ERROR = 0.01;
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+	private CodeDictionary smells = new CodeDictionary();
+	private CodeDictionary metrics = new CodeDictionary();
+	// by smell
+	private long[] counts = new long[16];
+	// by smell, then metric
+	private List<QuantileSketch[]> sketches = new ArrayList<QuantileSketch[]>();
+
+	@Override
+	public String getName() {
+		return "smells";
+	}
+
+	@Override
+	public void addCommit(Commit commit, String committer, Map<String, List<CodeSmell>> smellsByClass,
+			SmellChanges changes) {
+		for (List<CodeSmell> clazzSmells : smellsByClass.values()) {
+			for (CodeSmell smell : clazzSmells) {
+				int code = smells.encode(smell.getSmellId().getLabel());
+				if (code == counts.length) {
+					counts = Arrays.copyOf(counts, code * 2);
+				}
+				if (code == sketches.size()) {
+					sketches.add(new QuantileSketch[0]);
+				}
+				counts[code]++;
+				for (Metric metric : smell.getMetrics()) {
+					getSketch(code, metrics.encode(AxiomBuilder.getMetricName(metric.getName()))).add(metric.getValue());
+				}
+			}
+		}
+	}
+
+	private QuantileSketch getSketch(int smell, int metric) {
+		QuantileSketch[] smellSketches = sketches.get(smell);
+		if (metric >= smellSketches.length) {
+			smellSketches = Arrays.copyOf(smellSketches, metrics.size());
+			sketches.set(smell, smellSketches);
+		}
+		if (smellSketches[metric] == null) {
+			smellSketches[metric] = new QuantileSketch(ERROR);
+		}
+
+		return smellSketches[metric];
+	}
+
+	@Override
+	public String[] getHeader() {
+		return new String[] { "smell", "metric", "smells", "measured", "min", "mean", "p50", "p90", "p99", "max" };
+	}
+
+	@Override
+	public void printRecords(CSVPrinter printer) throws IOException {
+		long total = 0;
+		QuantileSketch[] all = new QuantileSketch[metrics.size()];
+		for (int smell = 0; smell < smells.size(); smell++) {
+			total += counts[smell];
+			QuantileSketch[] smellSketches = sketches.get(smell);
+			for (int metric = 0; metric < smellSketches.length; metric++) {
+				if (smellSketches[metric] != null) {
+					printRecord(printer, smells.get(smell), metric, counts[smell], smellSketches[metric]);
+					// the sketches of every type add up to the distribution of all smells
+					if (all[metric] == null) {
+						all[metric] = new QuantileSketch(ERROR);
+					}
+					all[metric].merge(smellSketches[metric]);
+				}
+			}
+		}
+		for (int metric = 0; metric < all.length; metric++) {
+			if (all[metric] != null) {
+				printRecord(printer, "all", metric, total, all[metric]);
+			}
+		}
+	}
+
+	private void printRecord(CSVPrinter printer, String smell, int metric, long count, QuantileSketch sketch)
+			throws IOException {
+		List<Object> record = new ArrayList<Object>();
+		record.add(smell);
+		record.add(metrics.get(metric));
+		record.add(count);
+		record.add(sketch.getCount());
+		record.add(sketch.getMin());
+		record.add(sketch.getMean());
+		for (double percentile : PERCENTILES) {
+			record.add(sketch.getQuantile(percentile));
+		}
+		record.add(sketch.getMax());
+		printer.printRecord(record);
+	}
+
+	@Override
+	public void addAxioms(AxiomBuilder builder) {
+		// types of smells are classes of the ontology, not individuals
+	}
+
+}
@@ -0,0 +1,68 @@
+package br.org.ocean.exporter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.repositoryminer.model.CodeSmell;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/**
+ * Smells that appeared and disappeared with a commit
+ */
+public class SmellChanges {
+
+	private List<Introduced> introduced = new ArrayList<Introduced>();
+	private List<OWLNamedIndividual> removed = new ArrayList<OWLNamedIndividual>();
+
+	void introduce(String clazzName, CodeSmell smell, OWLNamedIndividual individual) {
+		introduced.add(new Introduced(clazzName, smell, individual));
+	}
+
+	void remove(OWLNamedIndividual individual) {
+		removed.add(individual);
+	}
+
+	public List<Introduced> getIntroduced() {
+		return introduced;
+	}
+
+	/**
+	 * @return the individuals, added by previous commits, of the smells that
+	 *         are gone
+	 */
+	public List<OWLNamedIndividual> getRemoved() {
+		return removed;
+	}
+
+	public boolean isEmpty() {
+		return introduced.isEmpty() && removed.isEmpty();
+	}
+
+	/**
+	 * A smell that was not in its class before the commit
+	 */
+	public static class Introduced {
+		private String clazzName;
+		private CodeSmell smell;
+		private OWLNamedIndividual individual;
+
+		Introduced(String clazzName, CodeSmell smell, OWLNamedIndividual individual) {
+			this.clazzName = clazzName;
+			this.smell = smell;
+			this.individual = individual;
+		}
+
+		public String getClazzName() {
+			return clazzName;
+		}
+
+		public CodeSmell getSmell() {
+			return smell;
+		}
+
+		public OWLNamedIndividual getIndividual() {
+			return individual;
+		}
+	}
+
+}
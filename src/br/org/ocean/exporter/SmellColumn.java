@@ -0,0 +1,11 @@
+package br.org.ocean.exporter;
+
+/**
+ * Dictionary encoded columns of a {@link SmellColumns} file, smells can be
+ * filtered and grouped by any of them
+ */
+public enum SmellColumn {
+
+	COMMIT, COMMITTER, CLASS, SMELL
+
+}
@@ -0,0 +1,227 @@
+package br.org.ocean.exporter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The smells of an export in columns, written next to the ontology
+ * (export.columns=true) so aggregate questions are answered by a scan of a
+ * few primitive columns instead of a reasoner. Strings are dictionary
+ * encoded, rows and commits refer to them by code
+ *
+ * <pre>
+ * file       := 'O' 'S' 'M' 'C' int(version) int(rows)
+ *               dictionary(commits) dictionary(committers) dictionary(classes)
+ *               dictionary(smells) dictionary(metrics)
+ *               long*(date of every commit) int*(committer of every commit)
+ *               int*(commit of every row) int*(class of every row) int*(smell of every row)
+ *               (double*(value of every row, NaN if missing))*(every metric)
+ * dictionary := int(count) (int(length) utf-8 bytes)*
+ * </pre>
+ *
+ * Dictionaries are read to the heap, the columns of the rows are memory
+ * mapped
+ */
+public class SmellColumns {
+
+	static final byte[] MAGIC = { 'O', 'S', 'M', 'C' };
+	static final int VERSION = 1;
+
+	private int rows;
+	// by column (see SmellColumn) and code
+	private String[][] dictionaries = new String[SmellColumn.values().length][];
+	private String[] metrics;
+	// by commit
+	private long[] commitDates;
+	private int[] commitCommitters;
+	// by row
+	private IntBuffer rowCommits;
+	private IntBuffer rowClasses;
+	private IntBuffer rowSmells;
+	private DoubleBuffer[] metricColumns;
+
+	private SmellColumns() {
+	}
+
+	public static SmellColumns open(File file) throws IOException {
+		SmellColumns columns = new SmellColumns();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long position = columns.readHeader(
+					new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+			int commitCount = columns.commitDates.length;
+			position += (long) commitCount * (Long.BYTES + Integer.BYTES);
+
+			// every column is mapped on its own, the mapping outlives the channel
+			long intColumn = (long) columns.rows * Integer.BYTES;
+			columns.rowCommits = channel.map(MapMode.READ_ONLY, position, intColumn).asIntBuffer();
+			position += intColumn;
+			columns.rowClasses = channel.map(MapMode.READ_ONLY, position, intColumn).asIntBuffer();
+			position += intColumn;
+			columns.rowSmells = channel.map(MapMode.READ_ONLY, position, intColumn).asIntBuffer();
+			position += intColumn;
+			long doubleColumn = (long) columns.rows * Double.BYTES;
+			columns.metricColumns = new DoubleBuffer[columns.metrics.length];
+			for (int m = 0; m < columns.metrics.length; m++) {
+				columns.metricColumns[m] = channel.map(MapMode.READ_ONLY, position, doubleColumn).asDoubleBuffer();
+				position += doubleColumn;
+			}
+		}
+
+		return columns;
+	}
+
+	/**
+	 * Reads everything but the columns of the rows
+	 *
+	 * @return where the commit columns start
+	 */
+	private long readHeader(DataInputStream in) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (magic[i] != MAGIC[i]) {
+				throw new IOException("not a smell columns file");
+			}
+		}
+		if (in.readInt() != VERSION) {
+			throw new IOException("unknown version of smell columns file");
+		}
+		rows = in.readInt();
+		long position = MAGIC.length + 2 * Integer.BYTES;
+
+		long[] read = new long[1];
+		dictionaries[SmellColumn.COMMIT.ordinal()] = readDictionary(in, read);
+		dictionaries[SmellColumn.COMMITTER.ordinal()] = readDictionary(in, read);
+		dictionaries[SmellColumn.CLASS.ordinal()] = readDictionary(in, read);
+		dictionaries[SmellColumn.SMELL.ordinal()] = readDictionary(in, read);
+		metrics = readDictionary(in, read);
+		position += read[0];
+
+		// commits are few, they are kept on the heap
+		int commitCount = getSize(SmellColumn.COMMIT);
+		commitDates = new long[commitCount];
+		for (int i = 0; i < commitCount; i++) {
+			commitDates[i] = in.readLong();
+		}
+		commitCommitters = new int[commitCount];
+		for (int i = 0; i < commitCount; i++) {
+			commitCommitters[i] = in.readInt();
+		}
+
+		return position;
+	}
+
+	private String[] readDictionary(DataInputStream in, long[] read) throws IOException {
+		String[] values = new String[in.readInt()];
+		read[0] += Integer.BYTES;
+		for (int i = 0; i < values.length; i++) {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			values[i] = new String(bytes, StandardCharsets.UTF_8);
+			read[0] += Integer.BYTES + bytes.length;
+		}
+
+		return values;
+	}
+
+	/**
+	 * @return a query over every smell, to be narrowed by filters
+	 */
+	public SmellQuery query() {
+		return new SmellQuery(this);
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return how many distinct values the column has
+	 */
+	public int getSize(SmellColumn column) {
+		return dictionaries[column.ordinal()].length;
+	}
+
+	public String getValue(SmellColumn column, int code) {
+		return dictionaries[column.ordinal()][code];
+	}
+
+	/**
+	 * @return the code of the value in the column or -1 if no row has it
+	 */
+	public int getCode(SmellColumn column, String value) {
+		String[] dictionary = dictionaries[column.ordinal()];
+		for (int i = 0; i < dictionary.length; i++) {
+			if (dictionary[i].equals(value)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return the code of the value of the column in the row
+	 */
+	public int getCode(SmellColumn column, int row) {
+		switch (column) {
+		case COMMIT:
+			return rowCommits.get(row);
+		case COMMITTER:
+			return commitCommitters[rowCommits.get(row)];
+		case CLASS:
+			return rowClasses.get(row);
+		default:
+			return rowSmells.get(row);
+		}
+	}
+
+	/**
+	 * @return the date of the commit, in milliseconds
+	 */
+	public long getCommitDate(int commit) {
+		return commitDates[commit];
+	}
+
+	public int getCommitCommitter(int commit) {
+		return commitCommitters[commit];
+	}
+
+	/**
+	 * @return the names of the metric columns, by code
+	 */
+	public String[] getMetrics() {
+		return metrics.clone();
+	}
+
+	/**
+	 * @return the code of the metric column or -1 if no smell has the metric
+	 */
+	public int getMetric(String metricName) {
+		for (int i = 0; i < metrics.length; i++) {
+			if (metrics[i].equals(metricName)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return the value of the metric in the row, NaN if the smell of the row
+	 *         has no such metric
+	 */
+	public double getMetric(int metric, int row) {
+		return metricColumns[metric].get(row);
+	}
+
+}
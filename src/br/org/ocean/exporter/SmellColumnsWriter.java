@@ -0,0 +1,187 @@
+package br.org.ocean.exporter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Metric;
+
+/**
+ * Collects the smells of the exported commits, one row per smell, and writes
+ * them as a {@link SmellColumns} file
+ */
+public class SmellColumnsWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private CodeDictionary commits = new CodeDictionary();
+	private CodeDictionary committers = new CodeDictionary();
+	private CodeDictionary classes = new CodeDictionary();
+	private CodeDictionary smells = new CodeDictionary();
+	private CodeDictionary metrics = new CodeDictionary();
+	// by commit
+	private long[] commitDates = new long[64];
+	private int[] commitCommitters = new int[64];
+	// by row
+	private int rows;
+	private int[] rowCommits = new int[1024];
+	private int[] rowClasses = new int[1024];
+	private int[] rowSmells = new int[1024];
+	// by metric, then row, NaN where the smell has no such metric
+	private List<double[]> metricColumns = new ArrayList<double[]>();
+
+	/**
+	 * Adds a row for every smell found by the commit
+	 *
+	 * @param committer
+	 *            the committer as named in the ontology
+	 */
+	public void addCommit(Commit commit, String committer, Map<String, List<CodeSmell>> smellsByClass) {
+		if (smellsByClass.isEmpty()) {
+			return;
+		}
+
+		int commitCode = addCommit(commit.getId(), commit.getCommitDate().getTime(), committer);
+		for (Map.Entry<String, List<CodeSmell>> clazzSmells : smellsByClass.entrySet()) {
+			int clazzCode = classes.encode(clazzSmells.getKey());
+			for (CodeSmell smell : clazzSmells.getValue()) {
+				int row = addRow(commitCode, clazzCode, smells.encode(smell.getSmellId().getLabel()));
+				for (Metric metric : smell.getMetrics()) {
+					getMetricColumn(AxiomBuilder.getMetricName(metric.getName()))[row] = metric.getValue();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds every row of a file written before, so an incremental export
+	 * keeps the smells of the previous exports
+	 */
+	public void addAll(SmellColumns previous) {
+		int[] commitCodes = new int[previous.getSize(SmellColumn.COMMIT)];
+		for (int i = 0; i < commitCodes.length; i++) {
+			commitCodes[i] = addCommit(previous.getValue(SmellColumn.COMMIT, i), previous.getCommitDate(i),
+					previous.getValue(SmellColumn.COMMITTER, previous.getCommitCommitter(i)));
+		}
+		int[] clazzCodes = encodeAll(previous, SmellColumn.CLASS, classes);
+		int[] smellCodes = encodeAll(previous, SmellColumn.SMELL, smells);
+		String[] metricNames = previous.getMetrics();
+
+		for (int row = 0; row < previous.getRows(); row++) {
+			int newRow = addRow(commitCodes[previous.getCode(SmellColumn.COMMIT, row)],
+					clazzCodes[previous.getCode(SmellColumn.CLASS, row)],
+					smellCodes[previous.getCode(SmellColumn.SMELL, row)]);
+			for (int m = 0; m < metricNames.length; m++) {
+				double value = previous.getMetric(m, row);
+				if (!Double.isNaN(value)) {
+					getMetricColumn(metricNames[m])[newRow] = value;
+				}
+			}
+		}
+	}
+
+	private int[] encodeAll(SmellColumns previous, SmellColumn column, CodeDictionary dictionary) {
+		int[] codes = new int[previous.getSize(column)];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = dictionary.encode(previous.getValue(column, i));
+		}
+
+		return codes;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	private int addCommit(String id, long date, String committer) {
+		int commitCode = commits.encode(id);
+		if (commitCode == commitDates.length) {
+			commitDates = Arrays.copyOf(commitDates, commitCode * 2);
+			commitCommitters = Arrays.copyOf(commitCommitters, commitCode * 2);
+		}
+		commitDates[commitCode] = date;
+		commitCommitters[commitCode] = committers.encode(committer);
+
+		return commitCode;
+	}
+
+	private int addRow(int commitCode, int clazzCode, int smellCode) {
+		if (rows == rowCommits.length) {
+			int capacity = rows * 2;
+			rowCommits = Arrays.copyOf(rowCommits, capacity);
+			rowClasses = Arrays.copyOf(rowClasses, capacity);
+			rowSmells = Arrays.copyOf(rowSmells, capacity);
+			for (int m = 0; m < metricColumns.size(); m++) {
+				double[] column = Arrays.copyOf(metricColumns.get(m), capacity);
+				Arrays.fill(column, rows, capacity, Double.NaN);
+				metricColumns.set(m, column);
+			}
+		}
+		rowCommits[rows] = commitCode;
+		rowClasses[rows] = clazzCode;
+		rowSmells[rows] = smellCode;
+
+		return rows++;
+	}
+
+	private double[] getMetricColumn(String metricName) {
+		int metricCode = metrics.encode(metricName);
+		if (metricCode == metricColumns.size()) {
+			double[] column = new double[rowCommits.length];
+			Arrays.fill(column, Double.NaN);
+			metricColumns.add(column);
+		}
+
+		return metricColumns.get(metricCode);
+	}
+
+	/**
+	 * Writes the rows collected so far, see {@link SmellColumns} for the
+	 * layout
+	 */
+	public void write(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+			out.write(SmellColumns.MAGIC);
+			out.writeInt(SmellColumns.VERSION);
+			out.writeInt(rows);
+			commits.write(out);
+			committers.write(out);
+			classes.write(out);
+			smells.write(out);
+			metrics.write(out);
+
+			for (int i = 0; i < commits.size(); i++) {
+				out.writeLong(commitDates[i]);
+			}
+			writeInts(out, commitCommitters, commits.size());
+			writeInts(out, rowCommits, rows);
+			writeInts(out, rowClasses, rows);
+			writeInts(out, rowSmells, rows);
+			for (double[] column : metricColumns) {
+				for (int row = 0; row < rows; row++) {
+					out.writeDouble(column[row]);
+				}
+			}
+		}
+	}
+
+	private void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+}
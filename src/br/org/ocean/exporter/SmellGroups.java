@@ -0,0 +1,130 @@
+package br.org.ocean.exporter;
+
+import java.util.Arrays;
+
+/**
+ * Smells grouped by the values of a column by {@link SmellQuery#groupBy},
+ * only values that some smell has make a group, in the order of their codes
+ * (commits come in the order they were exported)
+ */
+public class SmellGroups {
+
+	private SmellColumns columns;
+	private SmellColumn column;
+	// by code
+	private int[] counts;
+	private int[] measured;
+	private double[] sums;
+	private double[] minimums;
+	private double[] maximums;
+	// codes of the groups
+	private int[] groups;
+
+	SmellGroups(SmellColumns columns, SmellColumn column, int size, boolean metric) {
+		this.columns = columns;
+		this.column = column;
+		counts = new int[size];
+		if (metric) {
+			measured = new int[size];
+			sums = new double[size];
+			minimums = new double[size];
+			maximums = new double[size];
+			Arrays.fill(minimums, Double.NaN);
+			Arrays.fill(maximums, Double.NaN);
+		}
+	}
+
+	void add(int code) {
+		counts[code]++;
+	}
+
+	void add(int code, double value) {
+		counts[code]++;
+		if (!Double.isNaN(value)) {
+			// the first value is both bounds
+			if (measured[code]++ == 0) {
+				minimums[code] = value;
+				maximums[code] = value;
+			} else {
+				minimums[code] = Math.min(minimums[code], value);
+				maximums[code] = Math.max(maximums[code], value);
+			}
+			sums[code] += value;
+		}
+	}
+
+	void done() {
+		int size = 0;
+		groups = new int[counts.length];
+		for (int code = 0; code < counts.length; code++) {
+			if (counts[code] > 0) {
+				groups[size++] = code;
+			}
+		}
+		groups = Arrays.copyOf(groups, size);
+	}
+
+	public SmellColumn getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return how many groups there are
+	 */
+	public int size() {
+		return groups.length;
+	}
+
+	public String getKey(int group) {
+		return columns.getValue(column, groups[group]);
+	}
+
+	/**
+	 * @return the date of the commit of the group, in milliseconds, when
+	 *         grouping by {@link SmellColumn#COMMIT}
+	 */
+	public long getCommitDate(int group) {
+		if (column != SmellColumn.COMMIT) {
+			throw new IllegalStateException("not grouped by commit");
+		}
+
+		return columns.getCommitDate(groups[group]);
+	}
+
+	/**
+	 * @return how many smells the group has
+	 */
+	public int getCount(int group) {
+		return counts[groups[group]];
+	}
+
+	/**
+	 * @return how many smells of the group have the metric, 0 when grouping
+	 *         without a metric
+	 */
+	public int getMeasured(int group) {
+		return measured != null ? measured[groups[group]] : 0;
+	}
+
+	public double getSum(int group) {
+		return sums != null ? sums[groups[group]] : Double.NaN;
+	}
+
+	/**
+	 * @return the mean of the metric in the group, NaN if no smell of the
+	 *         group has the metric
+	 */
+	public double getMean(int group) {
+		int n = getMeasured(group);
+		return n > 0 ? getSum(group) / n : Double.NaN;
+	}
+
+	public double getMin(int group) {
+		return minimums != null ? minimums[groups[group]] : Double.NaN;
+	}
+
+	public double getMax(int group) {
+		return maximums != null ? maximums[groups[group]] : Double.NaN;
+	}
+
+}
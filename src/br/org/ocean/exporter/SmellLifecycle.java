@@ -0,0 +1,187 @@
+package br.org.ocean.exporter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.repositoryminer.model.CodeSmell;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Diff;
+import org.repositoryminer.model.MethodCodeSmell;
+import org.repositoryminer.scm.DiffType;
+import org.repositoryminer.utility.StringUtils;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/**
+ * The smells alive in every class while commits are exported from the oldest
+ * to the newest (export.smells=changes). A smell gets an individual only when
+ * it appears in its class, and is removed when a commit analyses the class
+ * and does not find it anymore, or deletes or renames the file of the class.
+ * A class whose file is unknown, as in checkpoints stored before files were
+ * kept, keeps its smells until it is analysed again
+ */
+public class SmellLifecycle {
+
+	// separates the class from the smell in the keys of the state
+	private static final char SEPARATOR = '#';
+
+	private OWLDataFactory factory;
+	// only names the smells
+	private AxiomBuilder builder;
+	// individuals of the smells alive by class, and by smell and method
+	private Map<String, Map<String, OWLNamedIndividual>> smellsByClass = new HashMap<String, Map<String, OWLNamedIndividual>>();
+	// hash of the file path of the classes with smells alive
+	private Map<String, Long> fileByClass = new HashMap<String, Long>();
+
+	public SmellLifecycle(OWLDataFactory factory, IIdStrategy ids) {
+		this.factory = factory;
+		builder = new AxiomBuilder(factory, null, ids);
+	}
+
+	/**
+	 * Moves the lifecycle to a commit, commits must come in the order they
+	 * were committed
+	 *
+	 * @param smells
+	 *            the smells found by the commit, by class
+	 * @param analysedClasses
+	 *            the classes analysed by the commit with the hash of their
+	 *            file, a class that was not analysed keeps its smells unless
+	 *            the commit removes its file
+	 */
+	public SmellChanges update(Commit commit, Map<String, List<CodeSmell>> smells,
+			Map<String, Long> analysedClasses) {
+		String commitId = commit.getId();
+		SmellChanges changes = new SmellChanges();
+
+		Set<String> classes = new HashSet<String>(analysedClasses.keySet());
+		classes.addAll(smells.keySet());
+		Set<Long> removedFiles = getRemovedFiles(commit);
+		if (!removedFiles.isEmpty()) {
+			for (Map.Entry<String, Long> file : fileByClass.entrySet()) {
+				if (removedFiles.contains(file.getValue())) {
+					// no smell is found in a class that is gone
+					classes.add(file.getKey());
+				}
+			}
+		}
+		for (String clazzName : classes) {
+			Map<String, OWLNamedIndividual> alive = smellsByClass.remove(clazzName);
+			if (alive == null) {
+				alive = Collections.emptyMap();
+			}
+
+			Map<String, OWLNamedIndividual> found = new HashMap<String, OWLNamedIndividual>();
+			List<CodeSmell> clazzSmells = smells.get(clazzName);
+			if (clazzSmells != null) {
+				for (CodeSmell smell : clazzSmells) {
+					String key = getKey(smell);
+					if (found.containsKey(key)) {
+						continue;
+					}
+					OWLNamedIndividual smellInd = alive.get(key);
+					if (smellInd == null) {
+						smellInd = builder.getCodeSmell(commitId, clazzName, smell);
+						changes.introduce(clazzName, smell, smellInd);
+					}
+					found.put(key, smellInd);
+				}
+			}
+			for (Map.Entry<String, OWLNamedIndividual> smell : alive.entrySet()) {
+				if (!found.containsKey(smell.getKey())) {
+					changes.remove(smell.getValue());
+				}
+			}
+
+			Long file = analysedClasses.get(clazzName);
+			if (file == null) {
+				file = fileByClass.get(clazzName);
+			}
+			fileByClass.remove(clazzName);
+			if (!found.isEmpty()) {
+				smellsByClass.put(clazzName, found);
+				if (file != null) {
+					fileByClass.put(clazzName, file);
+				}
+			}
+		}
+
+		return changes;
+	}
+
+	/**
+	 * @return the hashes of the files deleted by the commit and of the old
+	 *         paths of the files it renamed
+	 */
+	private Set<Long> getRemovedFiles(Commit commit) {
+		Set<Long> files = new HashSet<Long>();
+		if (commit.getDiffs() != null) {
+			for (Diff diff : commit.getDiffs()) {
+				if (diff.getType() == DiffType.DELETE) {
+					files.add(diff.getHash());
+				} else if ((diff.getType() == DiffType.RENAME) && (diff.getOldPath() != null)) {
+					files.add(StringUtils.encodeToCRC32(diff.getOldPath()));
+				}
+			}
+		}
+
+		return files;
+	}
+
+	private String getKey(CodeSmell smell) {
+		String key = smell.getSmellId().getLabel();
+		if (smell instanceof MethodCodeSmell) {
+			key += SEPARATOR + ((MethodCodeSmell) smell).getSignature();
+		}
+
+		return key;
+	}
+
+	/**
+	 * @return the smells alive, IRIs of their individuals by class and smell,
+	 *         to be restored by another export
+	 */
+	public Map<String, String> getState() {
+		Map<String, String> state = new HashMap<String, String>();
+		for (Map.Entry<String, Map<String, OWLNamedIndividual>> clazz : smellsByClass.entrySet()) {
+			for (Map.Entry<String, OWLNamedIndividual> smell : clazz.getValue().entrySet()) {
+				state.put(clazz.getKey() + SEPARATOR + smell.getKey(), smell.getValue().getIRI().toString());
+			}
+		}
+
+		return state;
+	}
+
+	/**
+	 * @return the file hashes of the classes with smells alive, by class
+	 */
+	public Map<String, Long> getFiles() {
+		return new HashMap<String, Long>(fileByClass);
+	}
+
+	public void setFiles(Map<String, Long> files) {
+		fileByClass.clear();
+		fileByClass.putAll(files);
+	}
+
+	public void setState(Map<String, String> state) {
+		smellsByClass.clear();
+		for (Map.Entry<String, String> smell : state.entrySet()) {
+			int separator = smell.getKey().indexOf(SEPARATOR);
+			String clazzName = smell.getKey().substring(0, separator);
+			Map<String, OWLNamedIndividual> alive = smellsByClass.get(clazzName);
+			if (alive == null) {
+				alive = new HashMap<String, OWLNamedIndividual>();
+				smellsByClass.put(clazzName, alive);
+			}
+			alive.put(smell.getKey().substring(separator + 1),
+					factory.getOWLNamedIndividual(IRI.create(smell.getValue())));
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+package br.org.ocean.exporter;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Filters and groups the smells of a {@link SmellColumns} file, every answer
+ * is a single scan of the rows over primitive values
+ */
+public class SmellQuery {
+
+	// any value passes
+	private static final int ANY = -1;
+	// the value is not in the file, no row passes
+	private static final int NONE = -2;
+	private static final SmellColumn[] COLUMNS = SmellColumn.values();
+
+	private SmellColumns columns;
+	// code that a row must have, by column (see SmellColumn)
+	private int[] codes = new int[COLUMNS.length];
+	private long from = Long.MIN_VALUE;
+	private long to = Long.MAX_VALUE;
+	// ranges that metrics of a row must be in
+	private int[] metrics = new int[0];
+	private double[] minimums = new double[0];
+	private double[] maximums = new double[0];
+
+	SmellQuery(SmellColumns columns) {
+		this.columns = columns;
+		Arrays.fill(codes, ANY);
+	}
+
+	/**
+	 * Keeps only the smells with the value in the column
+	 */
+	public SmellQuery where(SmellColumn column, String value) {
+		int code = columns.getCode(column, value);
+		codes[column.ordinal()] = code == -1 ? NONE : code;
+
+		return this;
+	}
+
+	/**
+	 * Keeps only the smells of commits committed in the period
+	 *
+	 * @param from
+	 *            inclusive, null for no start
+	 * @param to
+	 *            exclusive, null for no end
+	 */
+	public SmellQuery between(Date from, Date to) {
+		this.from = from != null ? from.getTime() : Long.MIN_VALUE;
+		this.to = to != null ? to.getTime() : Long.MAX_VALUE;
+
+		return this;
+	}
+
+	/**
+	 * Keeps only the smells that have the metric between the bounds, both
+	 * inclusive
+	 */
+	public SmellQuery whereMetric(String metricName, double min, double max) {
+		int n = metrics.length;
+		metrics = Arrays.copyOf(metrics, n + 1);
+		minimums = Arrays.copyOf(minimums, n + 1);
+		maximums = Arrays.copyOf(maximums, n + 1);
+		int metric = columns.getMetric(metricName);
+		metrics[n] = metric == -1 ? NONE : metric;
+		minimums[n] = min;
+		maximums[n] = max;
+
+		return this;
+	}
+
+	private boolean isEmpty() {
+		for (int code : codes) {
+			if (code == NONE) {
+				return true;
+			}
+		}
+		for (int metric : metrics) {
+			if (metric == NONE) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean matches(int row) {
+		for (int c = 0; c < codes.length; c++) {
+			if ((codes[c] != ANY) && (columns.getCode(COLUMNS[c], row) != codes[c])) {
+				return false;
+			}
+		}
+		if ((from != Long.MIN_VALUE) || (to != Long.MAX_VALUE)) {
+			long date = columns.getCommitDate(columns.getCode(SmellColumn.COMMIT, row));
+			if ((date < from) || (date >= to)) {
+				return false;
+			}
+		}
+		for (int m = 0; m < metrics.length; m++) {
+			// NaN, a missing metric, is never in range
+			double value = columns.getMetric(metrics[m], row);
+			if (!((value >= minimums[m]) && (value <= maximums[m]))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return how many smells pass the filters
+	 */
+	public int count() {
+		if (isEmpty()) {
+			return 0;
+		}
+
+		int count = 0;
+		int rows = columns.getRows();
+		for (int row = 0; row < rows; row++) {
+			if (matches(row)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return the values of the metric in the smells that pass the filters
+	 *         and have the metric, in the order of the rows
+	 */
+	public double[] values(String metricName) {
+		int metric = columns.getMetric(metricName);
+		if (isEmpty() || (metric == -1)) {
+			return new double[0];
+		}
+
+		double[] values = new double[64];
+		int count = 0;
+		int rows = columns.getRows();
+		for (int row = 0; row < rows; row++) {
+			if (matches(row)) {
+				double value = columns.getMetric(metric, row);
+				if (!Double.isNaN(value)) {
+					if (count == values.length) {
+						values = Arrays.copyOf(values, count * 2);
+					}
+					values[count++] = value;
+				}
+			}
+		}
+
+		return Arrays.copyOf(values, count);
+	}
+
+	/**
+	 * @return how many smells pass the filters, by value of the column
+	 */
+	public SmellGroups groupBy(SmellColumn column) {
+		return groupBy(column, null);
+	}
+
+	/**
+	 * @param metricName
+	 *            metric summed up by group, null for counts only
+	 * @return how many smells pass the filters, and their metric, by value of
+	 *         the column
+	 */
+	public SmellGroups groupBy(SmellColumn column, String metricName) {
+		int size = columns.getSize(column);
+		int metric = metricName != null ? columns.getMetric(metricName) : -1;
+		SmellGroups groups = new SmellGroups(columns, column, size, metric != -1);
+		int rows = isEmpty() ? 0 : columns.getRows();
+		for (int row = 0; row < rows; row++) {
+			if (matches(row)) {
+				int code = columns.getCode(column, row);
+				if (metric != -1) {
+					groups.add(code, columns.getMetric(metric, row));
+				} else {
+					groups.add(code);
+				}
+			}
+		}
+		groups.done();
+
+		return groups;
+	}
+
+}
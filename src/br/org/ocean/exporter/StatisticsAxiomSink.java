@@ -0,0 +1,45 @@
+package br.org.ocean.exporter;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+/**
+ * Counts the axioms, by type, handed to the delegate sink
+ */
+public class StatisticsAxiomSink implements IAxiomSink {
+
+	private IAxiomSink delegate;
+	private ExportStatistics statistics;
+
+	public StatisticsAxiomSink(IAxiomSink delegate, ExportStatistics statistics) {
+		this.delegate = delegate;
+		this.statistics = statistics;
+	}
+
+	@Override
+	public void addAxiom(OWLAxiom axiom) {
+		statistics.axiomAdded(axiom);
+		delegate.addAxiom(axiom);
+	}
+
+	@Override
+	public void addAxioms(Collection<OWLAxiom> axioms) {
+		for (OWLAxiom axiom : axioms) {
+			statistics.axiomAdded(axiom);
+		}
+		delegate.addAxioms(axioms);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		delegate.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+
+}
@@ -0,0 +1,18 @@
+package br.org.ocean.persistence;
+
+import org.repositoryminer.persistence.handler.DirectCodeAnalysisDocumentHandler;
+
+import com.mongodb.client.model.Indexes;
+
+/**
+ * Direct code analysis looked up by commit, a whole batch of commits at once
+ */
+public class CodeAnalysisHandler extends DirectCodeAnalysisDocumentHandler {
+
+	public CodeAnalysisHandler() {
+		// the analysis of a batch is found by the index instead of a scan of
+		// the whole collection
+		collection.createIndex(Indexes.ascending("commit", "filehash"));
+	}
+
+}
@@ -0,0 +1,37 @@
+package br.org.ocean.persistence;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import org.bson.Document;
+import org.repositoryminer.model.Commit;
+
+import com.mongodb.client.MongoCursor;
+
+/**
+ * Parses commits lazily, only when they are taken from the cursor
+ */
+public class CommitCursor implements Iterator<Commit>, Closeable {
+
+	private MongoCursor<Document> cursor;
+
+	public CommitCursor(MongoCursor<Document> cursor) {
+		this.cursor = cursor;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return cursor.hasNext();
+	}
+
+	@Override
+	public Commit next() {
+		return Commit.parseDocument(cursor.next());
+	}
+
+	@Override
+	public void close() {
+		cursor.close();
+	}
+
+}
@@ -0,0 +1,80 @@
+package br.org.ocean.persistence;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.persistence.handler.CommitDocumentHandler;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+
+/**
+ * Commit queries that do not materialize the results in memory
+ */
+public class CommitCursorHandler extends CommitDocumentHandler {
+
+	// what exporting a commit reads, diffs only to find the analysis of their files
+	private static final Bson PROJECTION = Projections.include("message", "authored_date", "commit_date", "merge",
+			"author", "committer", "repository", "diffs.path", "diffs.old_path", "diffs.hash", "diffs.type");
+
+	public CommitCursorHandler() {
+		// commits are sorted by the index instead of in memory, where a long
+		// history would not fit the limit of the server, commits of the same
+		// second by their ids so every export visits them in the same order
+		collection.createIndex(Indexes.ascending("repository", "commit_date", "_id"));
+	}
+
+	public long countByRepository(String repository) {
+		return countByRepository(repository, null);
+	}
+
+	public long countByRepository(String repository, Date since) {
+		return count(byRepository(repository, since));
+	}
+
+	public CommitCursor findByRepository(String repository, int batchSize) {
+		return findByRepository(repository, batchSize, null);
+	}
+
+	/**
+	 * @return the commits of the repository committed at or after since (all
+	 *         of them if since is null), from the oldest to the newest,
+	 *         fetched from the database batchSize commits at a time
+	 */
+	public CommitCursor findByRepository(String repository, int batchSize, Date since) {
+		MongoCursor<Document> cursor = collection.find(byRepository(repository, since)).projection(PROJECTION)
+				.sort(Sorts.ascending("commit_date", "_id")).batchSize(batchSize).iterator();
+
+		return new CommitCursor(cursor);
+	}
+
+	/**
+	 * @return the commits with the given ids, in no particular order
+	 */
+	public List<Commit> findByIds(List<String> ids) {
+		List<Commit> commits = new ArrayList<Commit>(ids.size());
+		for (Document document : collection.find(Filters.in("_id", ids)).projection(PROJECTION)) {
+			commits.add(Commit.parseDocument(document));
+		}
+
+		return commits;
+	}
+
+	private Bson byRepository(String repository, Date since) {
+		Bson filter = Filters.eq("repository", new ObjectId(repository));
+		if (since != null) {
+			filter = Filters.and(filter, Filters.gte("commit_date", since));
+		}
+
+		return filter;
+	}
+
+}
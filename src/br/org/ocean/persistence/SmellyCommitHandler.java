@@ -0,0 +1,81 @@
+package br.org.ocean.persistence;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+
+/**
+ * Aggregations over the direct code analysis that bring only the commits
+ * that produced smells, the rest of the history never leaves the database
+ */
+public class SmellyCommitHandler extends CodeAnalysisHandler {
+
+	private static final String COMMITS_COLLECTION = "rm_commits";
+
+	// classes with at least one smell, reduced to what parsing the smells needs
+	private static final Document SMELLY_CLASSES = new Document("$map",
+			new Document("input",
+					new Document("$filter", new Document("input", "$classes").append("as", "c").append("cond",
+							new Document("$gt", Arrays.asList(
+									new Document("$size", new Document("$ifNull",
+											Arrays.asList("$$c.codesmells", Arrays.asList()))),
+									0)))))
+					.append("as", "c")
+					.append("in", new Document("name", "$$c.name").append("codesmells", "$$c.codesmells")));
+
+	public SmellyCommitHandler() {
+		// the analysis of a repository is matched by the index
+		collection.createIndex(Indexes.ascending("repository", "commit_date"));
+	}
+
+	public long countSmellyCommits(String repository, Date since) {
+		List<Bson> pipeline = Arrays.asList(Aggregates.match(smelly(repository, since)),
+				Aggregates.group("$commit"), Aggregates.group(null, Accumulators.sum("count", 1)));
+		Document result = collection.aggregate(pipeline).allowDiskUse(true).first();
+
+		return result != null ? ((Number) result.get("count")).longValue() : 0;
+	}
+
+	/**
+	 * @return a document for each commit of the repository, committed at or
+	 *         after since (all of them if since is null), that has smelly
+	 *         classes, from the oldest to the newest, with the commit itself
+	 *         (commit, a single element list) and the smelly classes of each
+	 *         analysed file (analyses, a list of filehash and classes)
+	 */
+	public MongoCursor<Document> findSmellyCommits(String repository, Date since, int batchSize) {
+		List<Bson> pipeline = Arrays.asList(Aggregates.match(smelly(repository, since)),
+				Aggregates.project(new Document("commit", 1).append("commit_date", 1).append("filehash", 1)
+						.append("classes", SMELLY_CLASSES)),
+				Aggregates.group("$commit", Accumulators.first("commit_date", "$commit_date"),
+						Accumulators.push("analyses",
+								new Document("filehash", "$filehash").append("classes", "$classes"))),
+				Aggregates.sort(Sorts.ascending("commit_date", "_id")),
+				Aggregates.lookup(COMMITS_COLLECTION, "_id", "_id", "commit"));
+
+		// grouping a long history may not fit the memory limit of a stage
+		return collection.aggregate(pipeline).allowDiskUse(true).batchSize(batchSize).iterator();
+	}
+
+	private Bson smelly(String repository, Date since) {
+		Bson filter = Filters.and(Filters.eq("repository", new ObjectId(repository)),
+				Filters.exists("classes.codesmells.0"));
+		if (since != null) {
+			filter = Filters.and(filter, Filters.gte("commit_date", since));
+		}
+
+		return filter;
+	}
+
+}
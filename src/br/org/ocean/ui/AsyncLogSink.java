@@ -0,0 +1,87 @@
+package br.org.ocean.ui;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+/**
+ * Shows log messages of any thread in a text area: messages are queued and
+ * appended in batches by the event dispatch thread, and only the last lines
+ * are kept, so logging costs the same however long the log is
+ */
+public class AsyncLogSink {
+
+	private JTextArea area;
+	private volatile int maxLines;
+	private volatile RollingLogFile file;
+
+	private ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<String>();
+	// true while a drain is waiting to run on the event dispatch thread
+	private AtomicBoolean scheduled = new AtomicBoolean();
+	private Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			drain();
+		}
+	};
+
+	public AsyncLogSink(JTextArea area, int maxLines) {
+		this.area = area;
+		this.maxLines = Math.max(1, maxLines);
+	}
+
+	public void setMaxLines(int maxLines) {
+		this.maxLines = Math.max(1, maxLines);
+	}
+
+	/**
+	 * @param file
+	 *            where messages are also written to, null for none
+	 */
+	public void setFile(RollingLogFile file) {
+		this.file = file;
+	}
+
+	public void log(String message) {
+		pending.add(message);
+		// a single drain for all messages logged until it runs
+		if (scheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(drain);
+		}
+	}
+
+	private void drain() {
+		scheduled.set(false);
+
+		StringBuilder batch = new StringBuilder();
+		String message;
+		while ((message = pending.poll()) != null) {
+			batch.append(message).append('\n');
+		}
+		if (batch.length() == 0) {
+			return;
+		}
+
+		if (file != null) {
+			file.write(batch.toString());
+		}
+		Document document = area.getDocument();
+		try {
+			document.insertString(document.getLength(), batch.toString(), null);
+			// the last line is the empty one after the last message
+			Element root = document.getDefaultRootElement();
+			int excess = root.getElementCount() - 1 - maxLines;
+			if (excess > 0) {
+				document.remove(0, root.getElement(excess - 1).getEndOffset());
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -5,29 +5,35 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JFileChooser;
 
-import org.repositoryminer.codesmell.direct.BrainClass;
-import org.repositoryminer.codesmell.direct.BrainMethod;
-import org.repositoryminer.codesmell.direct.DataClass;
-import org.repositoryminer.codesmell.direct.GodClass;
-import org.repositoryminer.codesmell.direct.LongMethod;
 import org.repositoryminer.listener.mining.IMiningListener;
 import org.repositoryminer.mining.RepositoryMiner;
 import org.repositoryminer.model.Reference;
 import org.repositoryminer.model.Repository;
-import org.repositoryminer.parser.java.JavaParser;
 import org.repositoryminer.persistence.Connection;
+import org.repositoryminer.persistence.handler.RepositoryDocumentHandler;
 import org.repositoryminer.scm.ISCM;
 import org.repositoryminer.scm.ReferenceType;
 import org.repositoryminer.scm.SCMFactory;
-import org.repositoryminer.scm.SCMType;
 
 import br.edu.ufba.ocean.ui.UI;
 import br.org.ocean.IExportProgressListener;
 import br.org.ocean.ILogger;
+import br.org.ocean.Miners;
+import br.org.ocean.exporter.BaseOntologies;
+import br.org.ocean.exporter.ExportCache;
+import br.org.ocean.exporter.ExportSettings;
+import br.org.ocean.exporter.MinerSmellSource;
 import br.org.ocean.exporter.OntoExporter;
 
 @SuppressWarnings("serial")
@@ -39,6 +45,8 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 
 	private Properties props;
 	private RepositoryMiner miner;
+	private AsyncLogSink logSink = new AsyncLogSink(log, 5000);
+	private ProgressAggregator progressAggregator = new ProgressAggregator(progress, progressinfo, 10);
 
 	public Frame() {
 	}
@@ -98,6 +106,8 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 				.getResourceAsStream("resources/config.properties");
 		props = new Properties();
 		props.load(configStream);
+		configureLog();
+		progressAggregator.setUpdatesPerSecond(Integer.parseInt(props.getProperty("ui.progress.updates", "10")));
 		// setup connection with mongodb
 		Connection conn = Connection.getInstance();
 		conn.connect(props.getProperty("bd.uri"), props.getProperty("bd.name"));
@@ -105,22 +115,20 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 		refreshMiner();
 	}
 
+	private void configureLog() {
+		logSink.setMaxLines(Integer.parseInt(props.getProperty("ui.log.lines", "5000")));
+		String logFile = props.getProperty("ui.log.file", "").trim();
+		if (!logFile.isEmpty()) {
+			logSink.setFile(new RollingLogFile(new File(logFile),
+					Long.parseLong(props.getProperty("ui.log.file.size", "10485760")),
+					Integer.parseInt(props.getProperty("ui.log.file.count", "3"))));
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private void refreshMiner() {
 		// (re)create miner
-		miner = new RepositoryMiner(getProjectPath(), props.getProperty("miner.temppath"), getProjectName(), "",
-				SCMType.GIT);
-		// setup miner
-		miner.addParser(new JavaParser());
-		miner.setMiningListener(this);
-
-		miner.addDirectCodeSmell(new GodClass());
-		miner.addDirectCodeSmell(new DataClass());
-		miner.addDirectCodeSmell(new BrainClass());
-		miner.addDirectCodeSmell(new LongMethod());
-		miner.addDirectCodeSmell(new BrainMethod());
-		// miner.addDirectCodeSmell(new FeatureEnvy());
-		// miner.addDirectCodeSmell(new ComplexMethod());
+		miner = Miners.create(getProjectPath(), props.getProperty("miner.temppath"), getProjectName(), this);
 		// fill branches in selection combo
 		ISCM scm = SCMFactory.getSCM(miner.getScm());
 		scm.open(getProjectPath());
@@ -138,15 +146,45 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 	@Override
 	public void run() {
 		try {
-			miner.getReferences().clear();
-			miner.addReference(tags.getSelectedItem().toString(), ReferenceType.TAG);
+			List<String> tagNames = getTagsToMine();
+			// the tags may have been exported already, with nothing changed since
+			ExportCache cache = ExportCache.open(props);
+			String cacheKey = null;
+			if (cache != null) {
+				cacheKey = ExportCache.getKey(getProjectName(), Miners.getTagHeads(getProjectPath(), tagNames),
+						miner.getDirectCodeSmells(), props,
+						BaseOntologies.read(props.getProperty("ontos.ocean.path")).getLastModified());
+				File cached = cache.find(cacheKey);
+				if (cached != null) {
+					log("nothing changed since the last export, ontology found at '" + cached + "'");
+					return;
+				}
+			}
 
-			Repository repository = miner.mine();
+			OntoExporter exporter;
+			if ((tagNames.size() == 1) && new ExportSettings(props).isMinerSource()) {
+				exporter = mineAndExport(tagNames.get(0));
+			} else {
+				String reference = tagNames.get(0);
+				if (tagNames.size() > 1) {
+					reference += ".." + tagNames.get(tagNames.size() - 1);
+				}
+				// the miner mines the tags one after the other, the commits
+				// they share only once
+				miner.getReferences().clear();
+				for (String tag : tagNames) {
+					miner.addReference(tag, ReferenceType.TAG);
+				}
+				Repository repository = miner.mine();
 
-			log("exporting to ontology...");
+				log("exporting to ontology...");
 
-			OntoExporter exporter = new OntoExporter();
-			exporter.init(this, this, props).export(repository);
+				exporter = new OntoExporter();
+				exporter.init(this, this, props).export(repository, reference);
+			}
+			if (cache != null) {
+				log("ontology cached as '" + cache.store(cacheKey, exporter.getOutputFile()) + "'");
+			}
 
 			log("end of mining!");
 		} catch (Exception e) {
@@ -160,6 +198,95 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 		}
 	}
 
+	/**
+	 * Exports the smells of the tag while it is mined, the exporter takes
+	 * them straight from the miner
+	 */
+	private OntoExporter mineAndExport(final String tag) throws Exception {
+		RepositoryMiner tagMiner = Miners.create(getProjectPath(), props.getProperty("miner.temppath"),
+				getProjectName(), this);
+		tagMiner.addReference(tag, ReferenceType.TAG);
+		final MinerSmellSource source = new MinerSmellSource().attach(tagMiner);
+		final Repository repository = new Repository(tagMiner);
+
+		// the mining progress is shown, the export keeps up with it
+		final OntoExporter exporter = new OntoExporter().init(this, new IExportProgressListener() {
+			@Override
+			public void exportStart(int maxSteps) {
+			}
+
+			@Override
+			public void exportProgress(int step) {
+			}
+		}, props).setSmellSource(source);
+		// the miner hands over only the commits it has not mined yet, the
+		// commits mined before are in the output of a previous export or nowhere
+		if (new RepositoryDocumentHandler().checkIfRepositoryExistsByName(getProjectName())
+				&& !exporter.canAppend(repository, tag)) {
+			throw new IllegalStateException("'" + getProjectName()
+					+ "' was mined before, export it with export.source=database or append to a previous export with export.incremental=true");
+		}
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> export = pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					exporter.export(repository, tag);
+					return null;
+				}
+			});
+			Exception failure = null;
+			try {
+				tagMiner.mine();
+			} catch (Exception e) {
+				failure = e;
+				source.fail(e);
+			} finally {
+				source.end();
+			}
+			if (failure != null) {
+				// the export takes back what it wrote before it stops
+				try {
+					export.get();
+				} catch (ExecutionException e) {
+					// the failure of the miner is the one reported
+				}
+				throw failure;
+			}
+			log("exporting to ontology...");
+			export.get();
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return exporter;
+	}
+
+	/**
+	 * @return the tags listed by miner.tags ("*" means every tag of the
+	 *         project) or the selected tag if there is no such list
+	 */
+	private List<String> getTagsToMine() {
+		List<String> tagNames = new ArrayList<String>();
+		String tagList = props.getProperty("miner.tags", "").trim();
+		if (tagList.equals("*")) {
+			for (int i = 0; i < tags.getItemCount(); i++) {
+				tagNames.add(tags.getItemAt(i).toString());
+			}
+		} else if (!tagList.isEmpty()) {
+			for (String tag : tagList.split(",")) {
+				if (!tag.trim().isEmpty()) {
+					tagNames.add(tag.trim());
+				}
+			}
+		}
+		if (tagNames.isEmpty()) {
+			tagNames.add(tags.getSelectedItem().toString());
+		}
+
+		return tagNames;
+	}
+
 	public void exhibit() {
 		pack();
 		setVisible(true);
@@ -178,10 +305,13 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 		return name;
 	}
 
+	void showProgress(int value, int maximum) {
+		progressAggregator.set(value, maximum);
+	}
+
 	@Override
 	public Frame log(String message) {
-		message = log.getText() + message + "\n";
-		log.setText(message);
+		logSink.log(message);
 
 		return this;
 	}
@@ -202,16 +332,12 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 	public void notifyReferencesMiningStart(int referencesQtd) {
 		log("Processing " + referencesQtd + " references");
 		
-		progress.setMaximum(referencesQtd);
-		progress.setValue(0);
+		progressAggregator.start("references", referencesQtd);
 	}
 
 	@Override
 	public void notifyReferencesMiningProgress(String referenceName, ReferenceType referenceType) {
-		progress.setValue(progress.getValue() + 1);
-		progressinfo.setText(progress.getValue() + " of " + progress.getMaximum());
-		
-		repaint();
+		progressAggregator.increment();
 	}
 
 	@Override
@@ -222,16 +348,12 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 	public void notifyCommitsMiningStart(String referenceName, ReferenceType referenceType, int commitsQtd) {
 		log("Processing " + commitsQtd + " commits");
 		
-		progress.setMaximum(commitsQtd);
-		progress.setValue(0);
+		progressAggregator.start("commits", commitsQtd);
 	}
 
 	@Override
 	public void notifyCommitsMiningProgress(String referenceName, ReferenceType referenceType, String commit) {
-		progress.setValue(progress.getValue() + 1);
-		progressinfo.setText(progress.getValue() + " of " + progress.getMaximum());
-		
-		repaint();
+		progressAggregator.increment();
 	}
 
 	@Override
@@ -255,16 +377,12 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 	public void notifyDirectCodeAnalysisStart(int commitsQtd) {
 		log("Analysing " + commitsQtd + " commits");
 		
-		progress.setMaximum(commitsQtd);
-		progress.setValue(0);
+		progressAggregator.start("commits", commitsQtd);
 	}
 
 	@Override
 	public void notifyDirectCodeAnalysisProgress(String commit, int index, int totalCommits) {
-		progress.setValue(index);
-		progressinfo.setText(index + " of " + totalCommits);
-		
-		repaint();
+		progressAggregator.set(index, totalCommits);
 	}
 
 	@Override
@@ -285,16 +403,12 @@ public class Frame extends UI implements IMiningListener, IExportProgressListene
 
 	@Override
 	public void exportStart(int maxSteps) {
-		progress.setMaximum(maxSteps);
-		progress.setValue(0);
+		progressAggregator.start("commits", maxSteps);
 	}
 
 	@Override
 	public void exportProgress(int step) {
-		progress.setValue(step);
-		progressinfo.setText(step + " of " + progress.getMaximum());
-		
-		repaint();
+		progressAggregator.set(step);
 	}
 
 }
@@ -0,0 +1,142 @@
+package br.org.ocean.ui;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.JLabel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+
+/**
+ * Takes progress from any thread and shows it, with its rate and the time
+ * left, at most a few times per second on the event dispatch thread
+ */
+public class ProgressAggregator {
+
+	// weight of the latest rate in the rate shown
+	private static final double SMOOTHING = 0.3;
+
+	private JProgressBar bar;
+	private JLabel info;
+	private volatile long intervalNanos;
+
+	private AtomicInteger value = new AtomicInteger();
+	private volatile int maximum;
+	private volatile String unit = "";
+	private volatile int phase;
+	private volatile long phaseStart = System.nanoTime();
+	private AtomicLong nextUpdate = new AtomicLong();
+	private AtomicBoolean scheduled = new AtomicBoolean();
+	private Runnable refresh = new Runnable() {
+		@Override
+		public void run() {
+			refresh();
+		}
+	};
+
+	// only touched by the event dispatch thread
+	private int shownPhase = -1;
+	private int lastValue;
+	private long lastTime;
+	private double rate;
+
+	public ProgressAggregator(JProgressBar bar, JLabel info, int updatesPerSecond) {
+		this.bar = bar;
+		this.info = info;
+		setUpdatesPerSecond(updatesPerSecond);
+	}
+
+	public void setUpdatesPerSecond(int updatesPerSecond) {
+		intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, updatesPerSecond);
+	}
+
+	/**
+	 * Starts a new phase, its rate is shown as unit/s
+	 */
+	public void start(String unit, int maximum) {
+		this.unit = unit;
+		this.maximum = maximum;
+		value.set(0);
+		phaseStart = System.nanoTime();
+		phase++;
+		schedule();
+	}
+
+	public void increment() {
+		update(value.incrementAndGet());
+	}
+
+	public void set(int value) {
+		this.value.set(value);
+		update(value);
+	}
+
+	/**
+	 * Progress of work whose size grows as it goes
+	 */
+	public void set(int value, int maximum) {
+		this.maximum = maximum;
+		set(value);
+	}
+
+	private void update(int current) {
+		long now = System.nanoTime();
+		long next = nextUpdate.get();
+		// the last step is always shown
+		if (current >= maximum) {
+			schedule();
+		} else if ((now >= next) && nextUpdate.compareAndSet(next, now + intervalNanos)) {
+			schedule();
+		}
+	}
+
+	private void schedule() {
+		// a single refresh shows everything that happened until it runs
+		if (scheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(refresh);
+		}
+	}
+
+	private void refresh() {
+		scheduled.set(false);
+		int current = value.get();
+		int max = maximum;
+		long now = System.nanoTime();
+
+		if (shownPhase != phase) {
+			shownPhase = phase;
+			lastValue = 0;
+			lastTime = phaseStart;
+			rate = 0;
+		}
+		if ((now > lastTime) && (current > lastValue)) {
+			double latest = (current - lastValue) / ((now - lastTime) / 1e9);
+			rate = (rate == 0) ? latest : (SMOOTHING * latest) + ((1 - SMOOTHING) * rate);
+			lastValue = current;
+			lastTime = now;
+		}
+
+		bar.setMaximum(max);
+		bar.setValue(current);
+		StringBuilder text = new StringBuilder().append(current).append(" of ").append(max);
+		if (rate > 0) {
+			text.append(String.format(" (%.1f %s/s", rate, unit));
+			if (current < max) {
+				text.append(", ETA ").append(formatSeconds((long) ((max - current) / rate)));
+			}
+			text.append(")");
+		}
+		info.setText(text.toString());
+	}
+
+	private static String formatSeconds(long seconds) {
+		if (seconds >= 3600) {
+			return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+		}
+
+		return String.format("%d:%02d", seconds / 60, seconds % 60);
+	}
+
+}
@@ -0,0 +1,94 @@
+package br.org.ocean.ui;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Appends log messages to a file on a thread of its own, when the file gets
+ * bigger than its limit it is renamed to file.1 (file.1 to file.2 and so on)
+ * and a new one is started
+ */
+public class RollingLogFile {
+
+	private File file;
+	private long maxBytes;
+	private int maxFiles;
+
+	private Writer writer;
+	private long bytes;
+	private ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "log-file");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * @param maxFiles
+	 *            how many old files are kept besides the current one
+	 */
+	public RollingLogFile(File file, long maxBytes, int maxFiles) {
+		this.file = file;
+		this.maxBytes = Math.max(1, maxBytes);
+		this.maxFiles = Math.max(0, maxFiles);
+	}
+
+	public void write(final String text) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					append(text);
+				} catch (IOException e) {
+					// logging must never stop the application
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+
+	private void append(String text) throws IOException {
+		if (writer == null) {
+			bytes = file.length();
+			writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+		}
+		writer.write(text);
+		writer.flush();
+
+		bytes += text.getBytes(StandardCharsets.UTF_8).length;
+		if (bytes >= maxBytes) {
+			roll();
+		}
+	}
+
+	private void roll() throws IOException {
+		writer.close();
+		writer = null;
+
+		File oldest = new File(file.getPath() + "." + maxFiles);
+		if (oldest.exists() && !oldest.delete()) {
+			throw new IOException("could not delete " + oldest);
+		}
+		for (int i = maxFiles - 1; i >= 1; i--) {
+			File old = new File(file.getPath() + "." + i);
+			if (old.exists()) {
+				old.renameTo(new File(file.getPath() + "." + (i + 1)));
+			}
+		}
+		if (maxFiles > 0) {
+			file.renameTo(new File(file.getPath() + ".1"));
+		} else {
+			file.delete();
+		}
+	}
+
+}
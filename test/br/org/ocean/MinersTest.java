@@ -0,0 +1,85 @@
+package br.org.ocean;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Commits of the tags of a local repository
+ */
+public class MinersTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Git git;
+	private List<String> commits = new ArrayList<String>();
+
+	@Before
+	public void setUp() throws Exception {
+		git = Git.init().setDirectory(folder.getRoot()).call();
+		commit("first");
+		git.tag().setName("v1").call();
+		commit("second");
+		commit("third");
+		git.tag().setName("v2").setMessage("annotated").call();
+		commit("fourth");
+		git.tag().setName("v3").call();
+	}
+
+	@After
+	public void tearDown() {
+		git.close();
+	}
+
+	private void commit(String name) throws Exception {
+		new File(folder.getRoot(), name + ".txt").createNewFile();
+		git.add().addFilepattern(name + ".txt").call();
+		RevCommit commit = git.commit().setMessage(name).setAuthor("author", "author@ocean.org")
+				.setCommitter("author", "author@ocean.org").call();
+		commits.add(commit.getName());
+	}
+
+	@Test
+	public void tagCommitsAreListedFromTheNewest() {
+		Map<String, List<String>> tagCommits = Miners.getTagCommits(folder.getRoot().getPath(),
+				Arrays.asList("v2", "v1", "v3"));
+
+		assertEquals(Arrays.asList("v2", "v1", "v3"), new ArrayList<String>(tagCommits.keySet()));
+		assertEquals(reversed(commits.subList(0, 1)), tagCommits.get("v1"));
+		assertEquals(reversed(commits.subList(0, 3)), tagCommits.get("v2"));
+		assertEquals(reversed(commits), tagCommits.get("v3"));
+	}
+
+	@Test
+	public void missingTagHasNoCommits() {
+		Map<String, List<String>> tagCommits = Miners.getTagCommits(folder.getRoot().getPath(),
+				Arrays.asList("v1", "v9"));
+
+		assertEquals(Collections.<String>emptyList(), tagCommits.get("v9"));
+		assertEquals(commits.get(0), Miners.getTagHeads(folder.getRoot().getPath(), Arrays.asList("v1", "v9"))
+				.get("v1"));
+		assertEquals("", Miners.getTagHeads(folder.getRoot().getPath(), Arrays.asList("v9")).get("v9"));
+	}
+
+	private List<String> reversed(List<String> list) {
+		List<String> copy = new ArrayList<String>(list);
+		Collections.reverse(copy);
+
+		return copy;
+	}
+
+}
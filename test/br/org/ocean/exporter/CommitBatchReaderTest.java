@@ -0,0 +1,102 @@
+package br.org.ocean.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Repository;
+
+/**
+ * Errors of the prefetching threads reach the export instead of leaving it
+ * waiting for batches that never come
+ */
+public class CommitBatchReaderTest {
+
+	private static final int COMMITS = 1000;
+
+	@Test(timeout = 10000)
+	public void errorReadingCommitsIsThrown() {
+		assertFailure(new FailingSmellSource(150, -1));
+	}
+
+	@Test(timeout = 10000)
+	public void errorFetchingSmellsIsThrown() {
+		assertFailure(new FailingSmellSource(-1, 2));
+	}
+
+	private void assertFailure(FailingSmellSource source) {
+		Repository repository = SyntheticSmellSource.createRepository();
+		try (CommitBatchReader batches = new CommitBatchReader(source, source.findCommits(repository, null, 100),
+				new ExportCheckpoint(null), new ExportStatistics(), 100).prefetch(2, 2)) {
+			while (batches.next() != null) {
+			}
+			fail("the error was not thrown");
+		} catch (LinkageError e) {
+			assertEquals("failed", e.getMessage());
+		}
+	}
+
+	/**
+	 * Synthetic commits whose reading fails after some commits, or whose
+	 * smells fail to come for some batch
+	 */
+	private static class FailingSmellSource implements ISmellSource {
+
+		private SyntheticSmellSource source = new SyntheticSmellSource(COMMITS, 7, 0.3);
+		private int failedCommit;
+		private int failedBatch;
+		private int batches;
+
+		public FailingSmellSource(int failedCommit, int failedBatch) {
+			this.failedCommit = failedCommit;
+			this.failedBatch = failedBatch;
+		}
+
+		@Override
+		public long countCommits(Repository repository, Date since) {
+			return COMMITS;
+		}
+
+		@Override
+		public Iterator<Commit> findCommits(Repository repository, Date since, int batchSize) {
+			final Iterator<Commit> commits = source.findCommits(repository, since, batchSize);
+			return new Iterator<Commit>() {
+				private int given;
+
+				@Override
+				public boolean hasNext() {
+					return commits.hasNext();
+				}
+
+				@Override
+				public Commit next() {
+					if (++given == failedCommit) {
+						throw new LinkageError("failed");
+					}
+
+					return commits.next();
+				}
+			};
+		}
+
+		@Override
+		public synchronized ICommitSmells findSmells(List<Commit> commits) {
+			if (++batches == failedBatch) {
+				throw new LinkageError("failed");
+			}
+
+			return source.findSmells(commits);
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
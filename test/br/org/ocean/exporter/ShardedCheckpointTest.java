@@ -0,0 +1,181 @@
+package br.org.ocean.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.model.Commit;
+import org.repositoryminer.model.Repository;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.MissingImportHandlingStrategy;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import br.org.ocean.IExportProgressListener;
+import br.org.ocean.ILogger;
+
+/**
+ * A sharded export killed between a shard rollover and the next checkpoint
+ * resumes without exporting a commit twice
+ */
+public class ShardedCheckpointTest {
+
+	private static final int COMMITS = 1200;
+	// after the checkpoint of the first 400 commits, shards of 50 exported
+	// commits roll over before the next one
+	private static final int KILLED_AT = 550;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BaseOntologies base;
+
+	@Before
+	public void setUp() throws Exception {
+		base = BaseOntologies.read("ontos");
+	}
+
+	@Test
+	public void resumedShardsHoldEveryCommitOnce() throws Exception {
+		File reference = folder.newFolder("reference");
+		export(reference, 0);
+		File resumed = folder.newFolder("resumed");
+		try {
+			export(resumed, KILLED_AT);
+			fail("the export was not killed");
+		} catch (IllegalStateException e) {
+			assertEquals("killed", e.getMessage());
+		}
+		export(resumed, 0);
+
+		Map<String, String> commits = getShardsByCommit(resumed);
+		assertEquals(getShardsByCommit(reference).keySet(), commits.keySet());
+	}
+
+	private void export(File dir, int killedAt) throws Exception {
+		Properties props = new Properties();
+		props.setProperty("ontos.output.path", dir.getPath());
+		props.setProperty("export.format", "owl");
+		props.setProperty("export.shard", "commits");
+		props.setProperty("export.shard.size", "50");
+		props.setProperty("export.ids", "content");
+		props.setProperty("export.batch.size", "100");
+		props.setProperty("export.checkpoint.commits", "400");
+		new OntoExporter().init(new ILogger() {
+			@Override
+			public ILogger log(String message) {
+				return this;
+			}
+		}, new IExportProgressListener() {
+			@Override
+			public void exportStart(int maxSteps) {
+			}
+
+			@Override
+			public void exportProgress(int step) {
+			}
+		}, props, base).setSmellSource(new KilledSmellSource(killedAt))
+				.export(SyntheticSmellSource.createRepository(), "v1");
+	}
+
+	/**
+	 * @return the shard of every commit, failing if a commit is in two
+	 */
+	private Map<String, String> getShardsByCommit(File dir) throws Exception {
+		Map<String, String> shards = new HashMap<String, String>();
+		for (File file : dir.listFiles()) {
+			if (!file.getName().matches(".*_\\d{4}\\.owl")) {
+				continue;
+			}
+			for (OWLClassAssertionAxiom axiom : load(file).getAxioms(AxiomType.CLASS_ASSERTION)) {
+				if (axiom.getClassExpression().asOWLClass().getIRI().getShortForm().equals("Commit")) {
+					String commit = axiom.getIndividual().toStringID();
+					String other = shards.put(commit, file.getName());
+					assertFalse(commit + " is in " + other + " and " + file.getName(),
+							(other != null) && !other.equals(file.getName()));
+				}
+			}
+		}
+
+		return shards;
+	}
+
+	private OWLOntology load(File file) throws Exception {
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		OWLOntologyLoaderConfiguration config = new OWLOntologyLoaderConfiguration()
+				.setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			return manager.loadOntologyFromOntologyDocument(new StreamDocumentSource(in), config);
+		}
+	}
+
+	/**
+	 * Synthetic commits that stop coming with an error after some of them,
+	 * as if the export were killed
+	 */
+	private static class KilledSmellSource implements ISmellSource {
+
+		private SyntheticSmellSource source = new SyntheticSmellSource(COMMITS, 7, 0.3);
+		private int killedAt;
+
+		public KilledSmellSource(int killedAt) {
+			this.killedAt = killedAt;
+		}
+
+		@Override
+		public long countCommits(Repository repository, Date since) {
+			return source.countCommits(repository, since);
+		}
+
+		@Override
+		public Iterator<Commit> findCommits(Repository repository, Date since, int batchSize) {
+			final Iterator<Commit> commits = source.findCommits(repository, since, batchSize);
+			return new Iterator<Commit>() {
+				private int given;
+
+				@Override
+				public boolean hasNext() {
+					return commits.hasNext();
+				}
+
+				@Override
+				public Commit next() {
+					if ((killedAt > 0) && (++given > killedAt)) {
+						throw new IllegalStateException("killed");
+					}
+
+					return commits.next();
+				}
+			};
+		}
+
+		@Override
+		public ICommitSmells findSmells(List<Commit> commits) {
+			return source.findSmells(commits);
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}